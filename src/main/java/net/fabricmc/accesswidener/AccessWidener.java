@@ -16,12 +16,25 @@
 
 package net.fabricmc.accesswidener;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
 
 public final class AccessWidener implements AccessWidenerVisitor {
 	String namespace;
@@ -30,9 +43,110 @@ public final class AccessWidener implements AccessWidenerVisitor {
 	final Map<String, Access> classAccess = new HashMap<>();
 	final Map<EntryTriple, Access> methodAccess = new HashMap<>();
 	final Map<EntryTriple, Access> fieldAccess = new HashMap<>();
+	// The same for transitive rules only, so that they can be visited again with their transitive flag.
+	final Map<String, Access> transitiveClassAccess = new HashMap<>();
+	final Map<EntryTriple, Access> transitiveMethodAccess = new HashMap<>();
+	final Map<EntryTriple, Access> transitiveFieldAccess = new HashMap<>();
 	// Contains the class-names that are affected by loaded wideners.
 	// Names are period-separated binary names (i.e. a.b.C).
 	final Set<String> classes = new LinkedHashSet<>();
+	// Contains the owners of widened methods other than constructors. Only these classes can contain
+	// INVOKESPECIAL calls that need to be rewritten.
+	final Set<String> methodOwners = new HashSet<>();
+	// Index of the field and method rules by owner, to find all rules that affect a single class.
+	final Map<String, Set<EntryTriple>> memberRules = new HashMap<>();
+	private volatile AccessWidenerMetrics metrics = AccessWidenerMetrics.NONE;
+	private volatile RuleUsageTracker ruleUsage;
+	// Set if the rules are parsed per owner when they are first needed, in which case the maps above stay empty
+	final LazyRuleIndex lazyRules;
+	// Set by compileRules, and cleared when further rules are visited
+	private volatile AccessWidenerCompiler.Rules compiledRules;
+
+	public AccessWidener() {
+		this.lazyRules = null;
+	}
+
+	private AccessWidener(LazyRuleIndex lazyRules) {
+		this.lazyRules = lazyRules;
+	}
+
+	/**
+	 * Creates an access widener that only parses the rules of a class when they are first needed to transform it.
+	 *
+	 * <p>The file is read once to find the lines of each owner and the target classes, and kept in memory. The rules
+	 * of an owner are parsed the first time they are looked up, possibly from multiple threads, and then cached.
+	 * Errors in a line are therefore only reported when the rules of its owner are used. Files that contain lines
+	 * whose owner can't be found without parsing them, such as owners written as Java type names, are read eagerly.
+	 *
+	 * <p>The returned access widener can't visit further rules. The content is copied, so the array may be reused
+	 * once this method returns.
+	 *
+	 * @param content          the content of the access widener file
+	 * @param currentNamespace the namespace the file must have, or {@code null} to accept any namespace
+	 */
+	public static AccessWidener readLazily(byte[] content, String currentNamespace) {
+		AccessWidenerReader.Header header = AccessWidenerReader.readHeader(content);
+
+		if (currentNamespace != null && !header.getNamespace().equals(currentNamespace)) {
+			throw new AccessWidenerFormatException(1, String.format("Namespace (%s) does not match current runtime namespace (%s)", header.getNamespace(), currentNamespace));
+		}
+
+		LazyRuleIndex index = LazyRuleIndex.create(content, header.getVersion());
+
+		if (index == null) {
+			AccessWidener accessWidener = new AccessWidener();
+			new AccessWidenerReader(accessWidener).read(content);
+			return accessWidener;
+		}
+
+		AccessWidener accessWidener = new AccessWidener(index);
+		accessWidener.visitHeader(header.getNamespace());
+
+		for (String owner : index.getOwners()) {
+			accessWidener.addTargets(owner);
+		}
+
+		return accessWidener;
+	}
+
+	/**
+	 * Returns the access widener that holds the rules of the given owner, which is this one unless it is lazy.
+	 */
+	private AccessWidener rulesOf(String owner) {
+		return lazyRules != null ? lazyRules.getRules(owner) : this;
+	}
+
+	private void checkModifiable() {
+		if (lazyRules != null) {
+			throw new IllegalStateException("Lazily read access wideners can't visit further rules");
+		}
+
+		// The compiled rules would miss the new rule
+		if (compiledRules != null) {
+			compiledRules = null;
+		}
+	}
+
+	/**
+	 * Compiles the current rules into a hidden class that transforms classes faster than looking the rules up in
+	 * maps, which is worth it if many classes are transformed over a long time. Visiting further rules discards the
+	 * compiled rules until this method is called again. The rules of a lazily read access widener are all parsed
+	 * by this call.
+	 *
+	 * @return whether the rules were compiled, which requires Java 15 or newer and fails for very large access
+	 *         wideners, in which case the rules keep being looked up in maps
+	 */
+	public boolean compileRules() {
+		AccessWidener rules = this;
+
+		if (lazyRules != null) {
+			rules = new AccessWidener();
+			accept(rules);
+		}
+
+		compiledRules = AccessWidenerCompiler.compile(rules);
+		return compiledRules != null;
+	}
 
 	@Override
 	public void visitHeader(String namespace) {
@@ -45,20 +159,70 @@ public final class AccessWidener implements AccessWidenerVisitor {
 
 	@Override
 	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		checkModifiable();
 		classAccess.put(name, applyAccess(access, classAccess.getOrDefault(name, ClassAccess.DEFAULT), null));
 		addTargets(name);
+
+		if (transitive) {
+			transitiveClassAccess.put(name, mergeAccess(access, transitiveClassAccess.getOrDefault(name, ClassAccess.DEFAULT)));
+		}
+
+		RuleUsageTracker ruleUsage = this.ruleUsage;
+
+		if (ruleUsage != null) {
+			ruleUsage.addEntry(ruleUsage.classRule(name, classAccess.get(name)), access, transitive, "class", name);
+		}
 	}
 
 	@Override
 	public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
-		addOrMerge(methodAccess, new EntryTriple(owner, name, descriptor), access, MethodAccess.DEFAULT);
+		checkModifiable();
+		EntryTriple entry = new EntryTriple(owner, name, descriptor);
+		addOrMerge(methodAccess, entry, access, MethodAccess.DEFAULT);
 		addTargets(owner);
+
+		if (transitive) {
+			transitiveMethodAccess.put(entry, mergeAccess(access, transitiveMethodAccess.getOrDefault(entry, MethodAccess.DEFAULT)));
+		}
+
+		if (!name.equals("<init>")) {
+			methodOwners.add(owner);
+		}
+
+		RuleUsageTracker ruleUsage = this.ruleUsage;
+
+		if (ruleUsage != null) {
+			trackOwner(ruleUsage, owner);
+			ruleUsage.addEntry(ruleUsage.methodRule(entry, methodAccess.get(entry)), access, transitive, "method", owner, name, descriptor);
+		}
 	}
 
 	@Override
 	public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
-		addOrMerge(fieldAccess, new EntryTriple(owner, name, descriptor), access, FieldAccess.DEFAULT);
+		checkModifiable();
+		EntryTriple entry = new EntryTriple(owner, name, descriptor);
+		addOrMerge(fieldAccess, entry, access, FieldAccess.DEFAULT);
 		addTargets(owner);
+
+		if (transitive) {
+			transitiveFieldAccess.put(entry, mergeAccess(access, transitiveFieldAccess.getOrDefault(entry, FieldAccess.DEFAULT)));
+		}
+
+		RuleUsageTracker ruleUsage = this.ruleUsage;
+
+		if (ruleUsage != null) {
+			trackOwner(ruleUsage, owner);
+			ruleUsage.addEntry(ruleUsage.fieldRule(entry, fieldAccess.get(entry)), access, transitive, "field", owner, name, descriptor);
+		}
+	}
+
+	private void trackOwner(RuleUsageTracker ruleUsage, String owner) {
+		// Member entries can widen the access of their class
+		Access ownerAccess = classAccess.get(owner);
+
+		if (ownerAccess != null) {
+			ruleUsage.classRule(owner, ownerAccess);
+		}
 	}
 
 	private void addTargets(String clazz) {
@@ -78,15 +242,29 @@ public final class AccessWidener implements AccessWidenerVisitor {
 		}
 
 		map.put(entry, applyAccess(access, map.getOrDefault(entry, defaultAccess), entry));
+		memberRules.computeIfAbsent(entry.getOwner(), owner -> new HashSet<>()).add(entry);
 	}
 
 	Access applyAccess(AccessWidenerReader.AccessType input, Access access, EntryTriple entryTriple) {
 		switch (input) {
 		case ACCESSIBLE:
 			makeClassAccessible(entryTriple);
-			return access.makeAccessible();
+			break;
 		case EXTENDABLE:
 			makeClassExtendable(entryTriple);
+			break;
+		default:
+			break;
+		}
+
+		return mergeAccess(input, access);
+	}
+
+	private static Access mergeAccess(AccessWidenerReader.AccessType input, Access access) {
+		switch (input) {
+		case ACCESSIBLE:
+			return access.makeAccessible();
+		case EXTENDABLE:
 			return access.makeExtendable();
 		case MUTABLE:
 			return access.makeMutable();
@@ -106,15 +284,94 @@ public final class AccessWidener implements AccessWidenerVisitor {
 	}
 
 	Access getClassAccess(String className) {
-		return classAccess.getOrDefault(className, ClassAccess.DEFAULT);
+		AccessWidenerCompiler.Rules compiledRules = this.compiledRules;
+
+		if (compiledRules != null) {
+			return compiledRules.getClassAccess(className);
+		}
+
+		return rulesOf(className).classAccess.getOrDefault(className, ClassAccess.DEFAULT);
 	}
 
 	Access getFieldAccess(EntryTriple entryTriple) {
-		return fieldAccess.getOrDefault(entryTriple, FieldAccess.DEFAULT);
+		return getFieldAccess(entryTriple.getOwner(), entryTriple.getName(), entryTriple.getDesc());
+	}
+
+	Access getFieldAccess(String owner, String name, String descriptor) {
+		AccessWidenerCompiler.Rules compiledRules = this.compiledRules;
+
+		if (compiledRules != null) {
+			return compiledRules.getFieldAccess(owner, name, descriptor);
+		}
+
+		return rulesOf(owner).fieldAccess.getOrDefault(new EntryTriple(owner, name, descriptor), FieldAccess.DEFAULT);
 	}
 
 	Access getMethodAccess(EntryTriple entryTriple) {
-		return methodAccess.getOrDefault(entryTriple, MethodAccess.DEFAULT);
+		return getMethodAccess(entryTriple.getOwner(), entryTriple.getName(), entryTriple.getDesc());
+	}
+
+	Access getMethodAccess(String owner, String name, String descriptor) {
+		AccessWidenerCompiler.Rules compiledRules = this.compiledRules;
+
+		if (compiledRules != null) {
+			return compiledRules.getMethodAccess(owner, name, descriptor);
+		}
+
+		return rulesOf(owner).methodAccess.getOrDefault(new EntryTriple(owner, name, descriptor), MethodAccess.DEFAULT);
+	}
+
+	boolean hasWidenedMethods(String className) {
+		return rulesOf(className).methodOwners.contains(className);
+	}
+
+	/**
+	 * Feeds all rules that can affect the given class into {@code digest}, in an order that doesn't depend on the
+	 * order the rules were visited in.
+	 *
+	 * @param className    the internal name of the class
+	 * @param innerClasses the internal names of all classes listed in the class's {@code InnerClasses} attribute
+	 */
+	void digestRules(String className, Collection<String> innerClasses, MessageDigest digest) {
+		digestRule(digest, "class", className, getClassAccess(className));
+
+		for (String innerClass : innerClasses) {
+			digestRule(digest, "inner", innerClass, getClassAccess(innerClass));
+		}
+
+		AccessWidener rules = rulesOf(className);
+		Set<EntryTriple> members = rules.memberRules.get(className);
+
+		if (members == null) {
+			return;
+		}
+
+		List<EntryTriple> sortedMembers = new ArrayList<>(members);
+		Collections.sort(sortedMembers);
+
+		for (EntryTriple member : sortedMembers) {
+			String name = member.getName() + member.getDesc();
+			Access access = rules.methodAccess.get(member);
+
+			if (access != null) {
+				digestRule(digest, "method", name, access);
+			}
+
+			access = rules.fieldAccess.get(member);
+
+			if (access != null) {
+				digestRule(digest, "field", name, access);
+			}
+		}
+	}
+
+	private static void digestRule(MessageDigest digest, String kind, String name, Access access) {
+		digest.update(kind.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(name.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(access.toString().getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
 	}
 
 	public Set<String> getTargets() {
@@ -125,6 +382,200 @@ public final class AccessWidener implements AccessWidenerVisitor {
 		return namespace;
 	}
 
+	public AccessWidenerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics that are notified about every class transformed with this access widener.
+	 */
+	public void setMetrics(AccessWidenerMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics, "metrics");
+	}
+
+	/**
+	 * Starts tracking which entries are matched by transformed classes, replacing any previous tracker.
+	 * Entries visited after this call are tracked, so it should be called before reading the access widener files.
+	 * Rules visited earlier still apply, but are not reported. All entries of a lazily read access widener are
+	 * parsed again by this call and tracked.
+	 */
+	public RuleUsageTracker trackRuleUsage() {
+		if (lazyRules != null) {
+			AccessWidener rules = new AccessWidener();
+			RuleUsageTracker ruleUsage = rules.trackRuleUsage();
+			lazyRules.readAll(rules);
+			this.ruleUsage = ruleUsage;
+			return ruleUsage;
+		}
+
+		RuleUsageTracker ruleUsage = new RuleUsageTracker();
+		classAccess.forEach(ruleUsage::classRule);
+		methodAccess.forEach(ruleUsage::methodRule);
+		fieldAccess.forEach(ruleUsage::fieldRule);
+		this.ruleUsage = ruleUsage;
+		return ruleUsage;
+	}
+
+	RuleUsageTracker getRuleUsage() {
+		return ruleUsage;
+	}
+
+	/**
+	 * Applies this access widener to a single class file.
+	 *
+	 * @param classBytes the class file to transform
+	 * @return the transformed class file, or {@code classBytes} itself if the class is not changed by this widener
+	 */
+	public byte[] transform(byte[] classBytes) {
+		return transform(classBytes, false);
+	}
+
+	/**
+	 * Applies this access widener to a single class file.
+	 *
+	 * @param classBytes the class file to transform
+	 * @param skipDebug  whether debug information should be removed from transformed classes. Classes that are
+	 *                   returned unchanged keep their debug information.
+	 * @return the transformed class file, or {@code classBytes} itself if the class is not changed by this widener
+	 */
+	public byte[] transform(byte[] classBytes, boolean skipDebug) {
+		ClassReader classReader = new ClassReader(classBytes);
+
+		if (!classes.contains(classReader.getClassName().replace('/', '.'))) {
+			return classBytes;
+		}
+
+		// Sharing the reader lets the writer copy the constant pool and unchanged methods verbatim. Copied methods
+		// keep their debug information, so the writer has to start from scratch when it should be removed.
+		// Frames are never computed since widening access doesn't change them.
+		ClassWriter classWriter = skipDebug ? new ClassWriter(0) : new ClassWriter(classReader, 0);
+		AccessWidenerClassVisitor visitor = new AccessWidenerClassVisitor(Opcodes.ASM9, classWriter, this);
+		classReader.accept(visitor, skipDebug ? ClassReader.SKIP_DEBUG : 0);
+
+		return visitor.isModified() ? classWriter.toByteArray() : classBytes;
+	}
+
+	/**
+	 * Visits the rules of this access widener with the given visitor, for example to write or remap them.
+	 *
+	 * <p>The rules are visited sorted by owner, with the class rules of each owner first, followed by its member
+	 * rules sorted by name and descriptor. Rules that were visited more than once are only visited once, and class
+	 * rules that are implied by member rules are visited as class rules of their own. Transitive rules keep their
+	 * transitive flag. The header is only visited if this access widener has a namespace.
+	 */
+	public void accept(AccessWidenerVisitor visitor) {
+		if (namespace != null) {
+			visitor.visitHeader(namespace);
+		}
+
+		for (String owner : getOwners()) {
+			rulesOf(owner).acceptOwner(owner, visitor);
+		}
+	}
+
+	private Set<String> getOwners() {
+		if (lazyRules != null) {
+			return new TreeSet<>(lazyRules.getOwners());
+		}
+
+		Set<String> owners = new TreeSet<>(classAccess.keySet());
+		owners.addAll(memberRules.keySet());
+		return owners;
+	}
+
+	private void acceptOwner(String owner, AccessWidenerVisitor visitor) {
+		Access access = classAccess.get(owner);
+
+		if (access != null) {
+			Access transitiveAccess = transitiveClassAccess.get(owner);
+
+			for (AccessWidenerReader.AccessType type : getAccessTypes(access, AccessWidenerReader.AccessType.ACCESSIBLE, AccessWidenerReader.AccessType.EXTENDABLE)) {
+				visitor.visitClass(owner, type, isTransitive(transitiveAccess, type));
+			}
+		}
+
+		Set<EntryTriple> members = memberRules.get(owner);
+
+		if (members == null) {
+			return;
+		}
+
+		for (EntryTriple member : new TreeSet<>(members)) {
+			access = methodAccess.get(member);
+
+			if (access != null) {
+				Access transitiveAccess = transitiveMethodAccess.get(member);
+
+				for (AccessWidenerReader.AccessType type : getAccessTypes(access, AccessWidenerReader.AccessType.ACCESSIBLE, AccessWidenerReader.AccessType.EXTENDABLE)) {
+					visitor.visitMethod(owner, member.getName(), member.getDesc(), type, isTransitive(transitiveAccess, type));
+				}
+			}
+
+			access = fieldAccess.get(member);
+
+			if (access != null) {
+				Access transitiveAccess = transitiveFieldAccess.get(member);
+
+				for (AccessWidenerReader.AccessType type : getAccessTypes(access, AccessWidenerReader.AccessType.ACCESSIBLE, AccessWidenerReader.AccessType.MUTABLE)) {
+					visitor.visitField(owner, member.getName(), member.getDesc(), type, isTransitive(transitiveAccess, type));
+				}
+			}
+		}
+	}
+
+	private static boolean isTransitive(Access transitiveAccess, AccessWidenerReader.AccessType type) {
+		return transitiveAccess != null && mergeAccess(type, transitiveAccess) == transitiveAccess;
+	}
+
+	/**
+	 * Creates a copy of this access widener with all names remapped to another namespace, without writing and
+	 * re-reading the rules. This access widener is left unchanged.
+	 *
+	 * <p>The rules of different classes are remapped in parallel on the common {@link java.util.concurrent.ForkJoinPool},
+	 * so {@code remapper} must be safe to use from multiple threads. Lookups are cached unless it already is a
+	 * {@link CachingRemapper}. This access widener must not be modified while it is remapped.
+	 *
+	 * @param remapper    remaps names from the namespace of this access widener to {@code toNamespace}
+	 * @param toNamespace the namespace of the returned access widener
+	 */
+	public AccessWidener remap(Remapper remapper, String toNamespace) {
+		CachingRemapper cachingRemapper = remapper instanceof CachingRemapper ? (CachingRemapper) remapper : new CachingRemapper(remapper);
+
+		// Only the remapping runs in parallel, the rules are then added to the copy in a deterministic order
+		List<AccessWidenerRecorder> rules = getOwners().parallelStream()
+				.map(owner -> {
+					AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+					rulesOf(owner).acceptOwner(owner, new AccessWidenerRemapper(recorder, cachingRemapper, namespace, toNamespace));
+					return recorder;
+				})
+				.collect(Collectors.toList());
+
+		AccessWidener remapped = new AccessWidener();
+		remapped.visitHeader(toNamespace);
+
+		for (AccessWidenerRecorder ownerRules : rules) {
+			ownerRules.accept(remapped);
+		}
+
+		return remapped;
+	}
+
+	/**
+	 * Returns the access types among {@code candidates} that {@code access} already includes, i.e. that would not
+	 * change it if they were applied again.
+	 */
+	private static List<AccessWidenerReader.AccessType> getAccessTypes(Access access, AccessWidenerReader.AccessType... candidates) {
+		List<AccessWidenerReader.AccessType> types = new ArrayList<>(candidates.length);
+
+		for (AccessWidenerReader.AccessType candidate : candidates) {
+			if (mergeAccess(candidate, access) == access) {
+				types.add(candidate);
+			}
+		}
+
+		return types;
+	}
+
 	private static int makePublic(int i) {
 		return (i & ~(Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_PUBLIC;
 	}
@@ -174,10 +625,10 @@ public final class AccessWidener implements AccessWidenerVisitor {
 		EXTENDABLE((access, name, ownerAccess) -> makePublic(removeFinal(access))),
 		ACCESSIBLE_EXTENDABLE((access, name, ownerAccess) -> makePublic(removeFinal(access)));
 
-		private final AccessOperator operator;
+		private final AccessMasks masks;
 
 		ClassAccess(AccessOperator operator) {
-			this.operator = operator;
+			this.masks = new AccessMasks(operator);
 		}
 
 		@Override
@@ -205,7 +656,7 @@ public final class AccessWidener implements AccessWidenerVisitor {
 
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return masks.apply(access, targetName, ownerAccess);
 		}
 	}
 
@@ -215,10 +666,10 @@ public final class AccessWidener implements AccessWidenerVisitor {
 		EXTENDABLE((access, name, ownerAccess) -> makeProtected(removeFinal(access))),
 		ACCESSIBLE_EXTENDABLE((access, name, owner) -> makePublic(removeFinal(access)));
 
-		private final AccessOperator operator;
+		private final AccessMasks masks;
 
 		MethodAccess(AccessOperator operator) {
-			this.operator = operator;
+			this.masks = new AccessMasks(operator);
 		}
 
 		@Override
@@ -246,7 +697,7 @@ public final class AccessWidener implements AccessWidenerVisitor {
 
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return masks.apply(access, targetName, ownerAccess);
 		}
 	}
 
@@ -270,10 +721,10 @@ public final class AccessWidener implements AccessWidenerVisitor {
 			return makePublic(removeFinal(access));
 		});
 
-		private final AccessOperator operator;
+		private final AccessMasks masks;
 
 		FieldAccess(AccessOperator operator) {
-			this.operator = operator;
+			this.masks = new AccessMasks(operator);
 		}
 
 		@Override
@@ -301,7 +752,7 @@ public final class AccessWidener implements AccessWidenerVisitor {
 
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return masks.apply(access, targetName, ownerAccess);
 		}
 	}
 
@@ -309,4 +760,57 @@ public final class AccessWidener implements AccessWidenerVisitor {
 	interface AccessOperator {
 		int apply(int access, String targetName, int ownerAccess);
 	}
+
+	/**
+	 * An {@link AccessOperator} precomputed as AND and OR masks for every combination of the flags the operators
+	 * depend on, so that applying it only takes two bit operations.
+	 */
+	static final class AccessMasks {
+		// The flags of the target that select the masks, used at their own bit positions in the table index
+		private static final int CONTEXT_FLAGS = Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
+		// Further bits of the table index, which are not used by CONTEXT_FLAGS
+		private static final int INTERFACE_OWNER = 0x4;
+		private static final int CONSTRUCTOR = 0x10;
+		private static final int CONTEXTS = 0x20;
+
+		// The AND mask of each context followed by its OR mask
+		private final int[] masks = new int[CONTEXTS * 2];
+		// Whether the name has to be compared, which is only needed for methods
+		private final boolean constructorDependent;
+
+		AccessMasks(AccessOperator operator) {
+			for (int context = 0; context < CONTEXTS; context++) {
+				int flags = context & CONTEXT_FLAGS;
+				String name = (context & CONSTRUCTOR) != 0 ? "<init>" : "";
+				int ownerAccess = (context & INTERFACE_OWNER) != 0 ? Opcodes.ACC_INTERFACE : 0;
+
+				// The operators only read the context flags and change each other flag independently, so the flags
+				// that stay set when all of them are set form the AND mask, and the flags set from none the OR mask.
+				masks[context * 2] = operator.apply(flags | ~CONTEXT_FLAGS, name, ownerAccess);
+				masks[context * 2 + 1] = operator.apply(flags, name, ownerAccess);
+			}
+
+			boolean constructorDependent = false;
+
+			for (int i = 0; i < CONSTRUCTOR * 2; i++) {
+				constructorDependent |= masks[i] != masks[i + CONSTRUCTOR * 2];
+			}
+
+			this.constructorDependent = constructorDependent;
+		}
+
+		int apply(int access, String targetName, int ownerAccess) {
+			int context = access & CONTEXT_FLAGS;
+
+			if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0) {
+				context |= INTERFACE_OWNER;
+			}
+
+			if (constructorDependent && targetName.equals("<init>")) {
+				context |= CONSTRUCTOR;
+			}
+
+			return (access & masks[context * 2]) | masks[context * 2 + 1];
+		}
+	}
 }
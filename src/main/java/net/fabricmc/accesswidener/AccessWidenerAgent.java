@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A Java agent that applies access wideners to all classes loaded by the JVM.
+ *
+ * <p>The agent arguments are a comma-separated list of access widener files. A {@code namespace=<name>} element
+ * makes reading fail for the files following it if they are not in the given namespace, for example
+ * {@code -javaagent:access-widener.jar=namespace=named,first.accesswidener,second.accesswidener}.
+ *
+ * <p>Only classes loaded after the agent was started are transformed. Classes can't be widened once they are loaded,
+ * since the JVM doesn't allow retransformations to change modifiers, so the files are read only once.
+ *
+ * <p>ASM isn't bundled. The agent jar references the ASM jars it depends on through its {@code Class-Path} manifest
+ * attribute, by their file names in the Maven repository, so they have to be placed in the same directory as the
+ * agent jar.
+ */
+public final class AccessWidenerAgent {
+	private static final String NAMESPACE_PREFIX = "namespace=";
+
+	private static AccessWidenerTransformer transformer;
+
+	private AccessWidenerAgent() {
+	}
+
+	public static void premain(String args, Instrumentation instrumentation) throws IOException {
+		install(args, instrumentation);
+	}
+
+	public static void agentmain(String args, Instrumentation instrumentation) throws IOException {
+		install(args, instrumentation);
+	}
+
+	private static synchronized void install(String args, Instrumentation instrumentation) throws IOException {
+		if (transformer != null) {
+			throw new IllegalStateException("The access widener agent has already been started");
+		}
+
+		transformer = new AccessWidenerTransformer(readAccessWideners(args));
+		instrumentation.addTransformer(transformer);
+	}
+
+	static AccessWidener readAccessWideners(String args) throws IOException {
+		AccessWidener accessWidener = new AccessWidener();
+		AccessWidenerReader reader = new AccessWidenerReader(accessWidener);
+		String namespace = null;
+
+		if (args == null || args.isEmpty()) {
+			return accessWidener;
+		}
+
+		for (String arg : args.split(",")) {
+			if (arg.startsWith(NAMESPACE_PREFIX)) {
+				namespace = arg.substring(NAMESPACE_PREFIX.length());
+			} else if (!arg.isEmpty()) {
+				reader.read(Files.readAllBytes(Paths.get(arg)), namespace);
+			}
+		}
+
+		return accessWidener;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Arrays;
+
+/**
+ * A reusable batch of access widener entries, stored in parallel arrays.
+ *
+ * <p>Batches are passed to {@link AccessWidenerBatchVisitor#visitBatch(AccessWidenerBatch)}. Visitors must not keep
+ * a reference to a batch after the call returns, since the producer may clear and refill it.
+ */
+public final class AccessWidenerBatch {
+	public static final int CLASS = 0;
+	public static final int METHOD = 1;
+	public static final int FIELD = 2;
+
+	private byte[] kinds;
+	// The class name for classes, the owner for members
+	private String[] owners;
+	private String[] names;
+	private String[] descriptors;
+	private AccessWidenerReader.AccessType[] accesses;
+	private boolean[] transitive;
+	// The line each entry was read from, or 0 if it is unknown
+	private int[] lines;
+	private int size;
+
+	public AccessWidenerBatch() {
+		this(64);
+	}
+
+	public AccessWidenerBatch(int capacity) {
+		kinds = new byte[capacity];
+		owners = new String[capacity];
+		names = new String[capacity];
+		descriptors = new String[capacity];
+		accesses = new AccessWidenerReader.AccessType[capacity];
+		transitive = new boolean[capacity];
+		lines = new int[capacity];
+	}
+
+	public void addClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(CLASS, name, null, null, access, transitive, 0);
+	}
+
+	public void addMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(METHOD, owner, name, descriptor, access, transitive, 0);
+	}
+
+	public void addField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(FIELD, owner, name, descriptor, access, transitive, 0);
+	}
+
+	/**
+	 * Adds a copy of an entry of another batch.
+	 */
+	public void add(AccessWidenerBatch batch, int index) {
+		add(batch.kinds[index], batch.owners[index], batch.names[index], batch.descriptors[index], batch.accesses[index], batch.transitive[index], batch.lines[index]);
+	}
+
+	/**
+	 * Sets the line the last added entry was read from, to report errors thrown by visitors for that line.
+	 */
+	void setLine(int line) {
+		lines[size - 1] = line;
+	}
+
+	int getLine(int index) {
+		return lines[index];
+	}
+
+	private void add(int kind, String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive, int line) {
+		if (size == kinds.length) {
+			int capacity = Math.max(16, size * 2);
+			kinds = Arrays.copyOf(kinds, capacity);
+			owners = Arrays.copyOf(owners, capacity);
+			names = Arrays.copyOf(names, capacity);
+			descriptors = Arrays.copyOf(descriptors, capacity);
+			accesses = Arrays.copyOf(accesses, capacity);
+			this.transitive = Arrays.copyOf(this.transitive, capacity);
+			lines = Arrays.copyOf(lines, capacity);
+		}
+
+		kinds[size] = (byte) kind;
+		owners[size] = owner;
+		names[size] = name;
+		descriptors[size] = descriptor;
+		accesses[size] = access;
+		this.transitive[size] = transitive;
+		lines[size] = line;
+		size++;
+	}
+
+	/**
+	 * Removes all entries, keeping the capacity.
+	 */
+	public void clear() {
+		// Don't hold on to the names of the previous entries
+		Arrays.fill(owners, 0, size, null);
+		Arrays.fill(names, 0, size, null);
+		Arrays.fill(descriptors, 0, size, null);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return {@link #CLASS}, {@link #METHOD} or {@link #FIELD}
+	 */
+	public int getKind(int index) {
+		return kinds[index];
+	}
+
+	/**
+	 * The name of the class for class entries, or the name of the containing class for members.
+	 */
+	public String getOwner(int index) {
+		return owners[index];
+	}
+
+	/**
+	 * The name of the member, or {@code null} for class entries.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * The descriptor of the member, or {@code null} for class entries.
+	 */
+	public String getDescriptor(int index) {
+		return descriptors[index];
+	}
+
+	public AccessWidenerReader.AccessType getAccess(int index) {
+		return accesses[index];
+	}
+
+	public boolean isTransitive(int index) {
+		return transitive[index];
+	}
+
+	/**
+	 * Passes the entries to a visitor, as a whole if it is a {@link AccessWidenerBatchVisitor}, and one by one
+	 * otherwise.
+	 */
+	public void accept(AccessWidenerVisitor visitor) {
+		if (visitor instanceof AccessWidenerBatchVisitor) {
+			((AccessWidenerBatchVisitor) visitor).visitBatch(this);
+		} else {
+			acceptEntries(visitor);
+		}
+	}
+
+	/**
+	 * Passes the entries to a visitor one by one. Errors thrown for entries that were read from a file are reported
+	 * as an {@link AccessWidenerFormatException} for the line of the entry, in the same way as
+	 * {@link AccessWidenerReader} reports them for visitors that don't receive batches.
+	 */
+	public void acceptEntries(AccessWidenerVisitor visitor) {
+		for (int i = 0; i < size; i++) {
+			try {
+				switch (kinds[i]) {
+				case CLASS:
+					visitor.visitClass(owners[i], accesses[i], transitive[i]);
+					break;
+				case METHOD:
+					visitor.visitMethod(owners[i], names[i], descriptors[i], accesses[i], transitive[i]);
+					break;
+				case FIELD:
+					visitor.visitField(owners[i], names[i], descriptors[i], accesses[i], transitive[i]);
+					break;
+				default:
+					throw new IllegalStateException("Unknown entry kind: " + kinds[i]);
+				}
+			} catch (RuntimeException e) {
+				throw entryError(i, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the exception to throw for an error that occurred while processing an entry, which reports the line of
+	 * the entry if it is known.
+	 */
+	RuntimeException entryError(int index, RuntimeException e) {
+		if (lines[index] == 0 || e instanceof AccessWidenerFormatException) {
+			return e;
+		}
+
+		return new AccessWidenerFormatException(lines[index], e.toString());
+	}
+}
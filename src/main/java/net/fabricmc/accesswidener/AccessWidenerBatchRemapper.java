@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Remaps many access widener files with one remapper, in parallel.
+ *
+ * <p>Each file is read, remapped with {@link AccessWidenerRemapper} and written again in the version it was read in.
+ * All files share one {@link CachingRemapper}, so names that occur in several files are only looked up once. The
+ * remapper must be safe to use from multiple threads.
+ *
+ * <p>A file that fails to remap doesn't affect the others, its error is reported in its {@link Result}.
+ */
+public final class AccessWidenerBatchRemapper {
+	private final CachingRemapper remapper;
+	private final String fromNamespace;
+	private final String toNamespace;
+
+	/**
+	 * @param remapper      Will be used to remap names found in the access wideners. Unless it already is a
+	 *                      {@link CachingRemapper}, its results are cached for the lifetime of this batch remapper.
+	 * @param fromNamespace The expected namespace of the access wideners being remapped. Files with a different
+	 *                      namespace fail to remap.
+	 * @param toNamespace   The namespace that the access wideners will be remapped to.
+	 */
+	public AccessWidenerBatchRemapper(Remapper remapper, String fromNamespace, String toNamespace) {
+		this.remapper = remapper instanceof CachingRemapper ? (CachingRemapper) remapper : new CachingRemapper(remapper);
+		this.fromNamespace = fromNamespace;
+		this.toNamespace = toNamespace;
+	}
+
+	/**
+	 * Remaps the given access widener files on the common {@link java.util.concurrent.ForkJoinPool}.
+	 *
+	 * @return the results, in the same order as {@code inputs}
+	 */
+	public List<Result> remap(List<byte[]> inputs) {
+		Result[] results = new Result[inputs.size()];
+		IntStream.range(0, results.length).parallel().forEach(i -> results[i] = remap(inputs.get(i)));
+		return Arrays.asList(results);
+	}
+
+	private Result remap(byte[] input) {
+		try {
+			AccessWidenerWriter writer = new AccessWidenerWriter(AccessWidenerReader.readVersion(input));
+			new AccessWidenerReader(new AccessWidenerRemapper(writer, remapper, fromNamespace, toNamespace)).read(input);
+			return new Result(writer.write(), null);
+		} catch (RuntimeException e) {
+			return new Result(null, e);
+		}
+	}
+
+	/**
+	 * The remapper shared by all files, for its statistics.
+	 */
+	public CachingRemapper getRemapper() {
+		return remapper;
+	}
+
+	public static final class Result {
+		private final byte[] output;
+		private final RuntimeException error;
+
+		private Result(byte[] output, RuntimeException error) {
+			this.output = output;
+			this.error = error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		/**
+		 * The remapped access widener, or {@code null} if remapping failed.
+		 */
+		public byte[] getOutput() {
+			return output;
+		}
+
+		/**
+		 * The reason remapping failed, or {@code null} if it succeeded.
+		 */
+		public RuntimeException getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+/**
+ * A visitor that can receive many entries in a single call.
+ *
+ * <p>Producers such as {@link AccessWidenerReader} pass entries to visitors implementing this interface in batches,
+ * which saves a chain of virtual calls per entry when visitors are stacked. Use
+ * {@link AccessWidenerBatch#accept(AccessWidenerVisitor)} to pass a batch to any visitor. Headers are still visited
+ * with {@link #visitHeader(String)}, before the entries they apply to.
+ */
+public interface AccessWidenerBatchVisitor extends AccessWidenerVisitor {
+	/**
+	 * Visits a batch of entries. The batch must not be used after this method returns.
+	 *
+	 * <p>The default implementation visits the entries one by one.
+	 */
+	default void visitBatch(AccessWidenerBatch batch) {
+		batch.acceptEntries(this);
+	}
+}
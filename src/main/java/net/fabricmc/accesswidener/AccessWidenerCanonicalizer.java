@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects access widener entries and replays the smallest equivalent set of entries in a canonical order.
+ *
+ * <p>The following entries are removed:
+ * <ul>
+ *     <li>Duplicates of the same entry.</li>
+ *     <li>Non-transitive entries that are also present as transitive entries, since those apply to the
+ *     declaring mod as well.</li>
+ *     <li>Class entries that are implied by an entry for one of the class's members, in the same way as
+ *     {@link AccessWidener} makes the owner of an accessible member accessible, and the owner of an
+ *     extendable method extendable.</li>
+ *     <li>Accessible class entries of extendable classes, since extendable classes are made public as well.</li>
+ * </ul>
+ *
+ * <p>The remaining entries are sorted by owner, kind (class, field, method), name, descriptor and access.
+ * To write a canonical file, pass an {@link AccessWidenerWriter} to {@link #accept(AccessWidenerVisitor)}.
+ */
+public final class AccessWidenerCanonicalizer implements AccessWidenerVisitor {
+	private static final int CLASS = 0;
+	private static final int FIELD = 1;
+	private static final int METHOD = 2;
+
+	private String namespace;
+	// The entries, mapped to whether they are transitive
+	private final Map<Entry, Boolean> entries = new TreeMap<>();
+
+	@Override
+	public void visitHeader(String namespace) {
+		if (this.namespace != null && !this.namespace.equals(namespace)) {
+			throw new IllegalArgumentException("Cannot canonicalize different namespaces ("
+					+ this.namespace + " != " + namespace + ")");
+		}
+
+		this.namespace = namespace;
+	}
+
+	@Override
+	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		entries.merge(new Entry(CLASS, name, "", "", access), transitive, Boolean::logicalOr);
+	}
+
+	@Override
+	public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		entries.merge(new Entry(METHOD, owner, name, descriptor, access), transitive, Boolean::logicalOr);
+	}
+
+	@Override
+	public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		entries.merge(new Entry(FIELD, owner, name, descriptor, access), transitive, Boolean::logicalOr);
+	}
+
+	/**
+	 * Visits the canonical entries collected so far with the given visitor.
+	 */
+	public void accept(AccessWidenerVisitor visitor) {
+		if (namespace != null) {
+			visitor.visitHeader(namespace);
+		}
+
+		// The class entries implied by other entries, mapped to whether they are implied transitively
+		Map<Entry, Boolean> impliedClassEntries = new HashMap<>();
+
+		entries.forEach((entry, transitive) -> {
+			if (entry.kind != CLASS && (entry.access == AccessWidenerReader.AccessType.ACCESSIBLE
+					|| entry.access == AccessWidenerReader.AccessType.EXTENDABLE && entry.kind == METHOD)) {
+				impliedClassEntries.merge(new Entry(CLASS, entry.owner, "", "", entry.access), transitive, Boolean::logicalOr);
+			}
+
+			// Extendable classes are made public as well
+			if (entry.access == AccessWidenerReader.AccessType.EXTENDABLE) {
+				impliedClassEntries.merge(new Entry(CLASS, entry.owner, "", "", AccessWidenerReader.AccessType.ACCESSIBLE), transitive, Boolean::logicalOr);
+			}
+		});
+
+		entries.forEach((entry, transitive) -> {
+			switch (entry.kind) {
+			case CLASS:
+				Boolean implied = impliedClassEntries.get(entry);
+
+				// Dependents only get the implied entry if the member entry is transitive as well
+				if (implied == null || transitive && !implied) {
+					visitor.visitClass(entry.owner, entry.access, transitive);
+				}
+
+				break;
+			case FIELD:
+				visitor.visitField(entry.owner, entry.name, entry.descriptor, entry.access, transitive);
+				break;
+			case METHOD:
+				visitor.visitMethod(entry.owner, entry.name, entry.descriptor, entry.access, transitive);
+				break;
+			default:
+				throw new IllegalStateException("Unknown entry kind: " + entry.kind);
+			}
+		});
+	}
+
+	private static final class Entry implements Comparable<Entry> {
+		private final int kind;
+		private final String owner;
+		private final String name;
+		private final String descriptor;
+		private final AccessWidenerReader.AccessType access;
+
+		Entry(int kind, String owner, String name, String descriptor, AccessWidenerReader.AccessType access) {
+			this.kind = kind;
+			this.owner = owner;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.access = access;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			int result = owner.compareTo(o.owner);
+
+			if (result == 0) {
+				result = Integer.compare(kind, o.kind);
+			}
+
+			if (result == 0) {
+				result = name.compareTo(o.name);
+			}
+
+			if (result == 0) {
+				result = descriptor.compareTo(o.descriptor);
+			}
+
+			if (result == 0) {
+				result = access.compareTo(o.access);
+			}
+
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Entry && compareTo((Entry) o) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((owner.hashCode() * 31 + kind) * 31 + name.hashCode() * 19 + descriptor.hashCode()) * 31 + access.ordinal();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Caches the output of {@link AccessWidener#transform(byte[])} in memory, so that class loaders which load the same
+ * class bytes independently of each other share a single transformation.
+ *
+ * <p>Entries are keyed by class name and a SHA-256 hash of the original class bytes. Once the weight of all entries,
+ * i.e. the size of the cached classes plus an estimate of the memory used by each entry, exceeds the configured
+ * limit, entries are evicted in approximately least recently used order: entries are evicted in the order they were
+ * added, except that entries which were used since they were last considered for eviction get another chance.
+ * Classes that the widener doesn't change are cached as well, and only weigh as much as their entry.
+ *
+ * <p>Lookups don't take any locks, so the cache can be used for parallel class loading. Adding an entry locks the
+ * cache, which is only done after transforming a class. Two threads missing the same entry at the same time may both
+ * transform the class, in which case the first result is kept. Transformed classes are copied for every caller, so
+ * callers may modify the returned array.
+ */
+public final class AccessWidenerClassCache {
+	private static final byte[] UNCHANGED = new byte[0];
+	// Estimated memory used by an entry besides its class name and class bytes: the key, the hash, the map entry and
+	// the object headers
+	static final int ENTRY_OVERHEAD = 160;
+
+	private final AccessWidener accessWidener;
+	private final long maxWeight;
+	private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	// Entries in the order they are considered for eviction, guarded by itself together with weight
+	private final ArrayDeque<Entry> evictionQueue = new ArrayDeque<>();
+	private long weight;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param accessWidener The access widener to apply.
+	 * @param maxWeight     The maximum total weight of the entries in bytes.
+	 */
+	public AccessWidenerClassCache(AccessWidener accessWidener, long maxWeight) {
+		this.accessWidener = accessWidener;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the cached transformation of {@code classBytes}, transforming and caching it if necessary.
+	 *
+	 * @return a new copy of the transformed class file, or {@code classBytes} itself if the class is not changed by the
+	 *         widener
+	 * @see AccessWidener#transform(byte[])
+	 */
+	public byte[] transform(byte[] classBytes) {
+		String className = new ClassReader(classBytes).getClassName();
+
+		if (!accessWidener.getTargets().contains(className.replace('/', '.'))) {
+			return classBytes;
+		}
+
+		Key key = new Key(className, AccessWidenerDiskCache.createDigest().digest(classBytes));
+		Entry cached = entries.get(key);
+
+		if (cached != null) {
+			hits.increment();
+
+			// Avoid writing to the entry, and contention on its cache line, when it is already marked
+			if (!cached.used) {
+				cached.used = true;
+			}
+
+			return cached.value == UNCHANGED ? classBytes : cached.value.clone();
+		}
+
+		misses.increment();
+		byte[] transformed = accessWidener.transform(classBytes);
+
+		if (transformed == classBytes) {
+			put(new Entry(key, UNCHANGED));
+			return classBytes;
+		}
+
+		put(new Entry(key, transformed));
+		return transformed.clone();
+	}
+
+	private void put(Entry entry) {
+		if (entries.putIfAbsent(entry.key, entry) != null) {
+			return;
+		}
+
+		synchronized (evictionQueue) {
+			evictionQueue.add(entry);
+			weight += entry.weight;
+
+			while (weight > maxWeight) {
+				Entry next = evictionQueue.remove();
+
+				if (next.used) {
+					next.used = false;
+					evictionQueue.add(next);
+				} else {
+					entries.remove(next.key);
+					weight -= next.weight;
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	static long getEntryWeight(String className, byte[] value) {
+		return ENTRY_OVERHEAD + 2L * className.length() + value.length;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * The fraction of lookups that were served from the cache, or 0 if there were no lookups yet.
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * The total weight of all entries in bytes.
+	 */
+	public long getWeight() {
+		synchronized (evictionQueue) {
+			return weight;
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+		private final Key key;
+		// Never handed out, callers get a copy
+		private final byte[] value;
+		private final long weight;
+		// Whether the entry was used since it was last considered for eviction
+		private volatile boolean used;
+
+		Entry(Key key, byte[] value) {
+			this.key = key;
+			this.value = value;
+			this.weight = getEntryWeight(key.className, value);
+		}
+	}
+
+	private static final class Key {
+		private final String className;
+		private final byte[] hash;
+		private final int hashCode;
+
+		Key(String className, byte[] hash) {
+			this.className = className;
+			this.hash = hash;
+			this.hashCode = className.hashCode() * 31 + Arrays.hashCode(hash);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) o;
+			return className.equals(other.className) && Arrays.equals(hash, other.hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
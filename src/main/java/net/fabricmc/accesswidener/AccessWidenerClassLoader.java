@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * A class loader that applies an {@link AccessWidener} to the classes it defines.
+ *
+ * <p>Classes are read from a {@link ClassSource} after delegating to the parent, and only the targets of the
+ * access widener are transformed. The loader is parallel capable, so classes with different names are loaded and
+ * transformed concurrently, each under its own lock.
+ *
+ * <p>If a {@link AccessWidenerPrewarmer} for the same source and access widener is given, classes it has already
+ * transformed are defined as they are.
+ */
+public class AccessWidenerClassLoader extends ClassLoader {
+	static {
+		registerAsParallelCapable();
+	}
+
+	private final ClassSource classSource;
+	private final AccessWidener accessWidener;
+	private final AccessWidenerPrewarmer prewarmer;
+
+	public AccessWidenerClassLoader(ClassSource classSource, AccessWidener accessWidener, ClassLoader parent) {
+		this(classSource, accessWidener, null, parent);
+	}
+
+	public AccessWidenerClassLoader(ClassSource classSource, AccessWidener accessWidener, AccessWidenerPrewarmer prewarmer, ClassLoader parent) {
+		super(parent);
+		this.classSource = classSource;
+		this.accessWidener = accessWidener;
+		this.prewarmer = prewarmer;
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		byte[] classBytes = prewarmer != null ? prewarmer.take(name) : null;
+
+		if (classBytes == null) {
+			try {
+				classBytes = classSource.read(name.replace('.', '/'));
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+
+			if (classBytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+
+			if (accessWidener.getTargets().contains(name)) {
+				classBytes = accessWidener.transform(classBytes);
+			}
+		}
+
+		return defineClass(name, classBytes, 0, classBytes.length);
+	}
+
+	@Override
+	protected URL findResource(String name) {
+		Path path = classSource.findResource(name);
+		return path != null ? toUrl(path) : null;
+	}
+
+	@Override
+	protected Enumeration<URL> findResources(String name) {
+		List<URL> urls = new ArrayList<>();
+
+		for (Path path : classSource.findResources(name)) {
+			urls.add(toUrl(path));
+		}
+
+		return Collections.enumeration(urls);
+	}
+
+	private static URL toUrl(Path path) {
+		try {
+			return path.toUri().toURL();
+		} catch (MalformedURLException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -29,6 +29,20 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 	private final AccessWidener accessWidener;
 	private String className;
 	private int classAccess;
+	private boolean rewriteMethodCalls;
+	private boolean modified;
+	private int membersModified;
+	private int rulesApplied;
+	private int methodCallsRewritten;
+	// Read once per class, so that the duration is measured even if the metrics are replaced during the transformation
+	private AccessWidenerMetrics metrics = AccessWidenerMetrics.NONE;
+	private long startTime;
+	private JfrEvents.TransformEvent event;
+	// Set while rule usage is tracked, in which case rules are looked up in the tracker, which holds the same rules
+	// as the access widener together with their bits
+	private RuleUsageTracker ruleUsage;
+	// The tracked rules of the visited class and its members, looked up once per class
+	private RuleUsageTracker.OwnerRules ownerRules;
 
 	AccessWidenerClassVisitor(int api, ClassVisitor classVisitor, AccessWidener accessWidener) {
 		super(api, classVisitor);
@@ -41,12 +55,31 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		metrics = accessWidener.getMetrics();
+
+		if (metrics != AccessWidenerMetrics.NONE) {
+			startTime = System.nanoTime();
+		}
+
+		if (JfrEvents.AVAILABLE) {
+			event = new JfrEvents.TransformEvent();
+
+			if (event.isEnabled()) {
+				event.begin();
+			} else {
+				event = null;
+			}
+		}
+
 		className = name;
 		classAccess = access;
+		rewriteMethodCalls = accessWidener.hasWidenedMethods(name);
+		ruleUsage = accessWidener.getRuleUsage();
+		ownerRules = ruleUsage != null ? ruleUsage.getOwnerRules(name) : null;
 
 		super.visit(
 				version,
-				accessWidener.getClassAccess(name).apply(access, name, classAccess),
+				track(access, getClassAccess(name).apply(access, name, classAccess)),
 				name,
 				signature,
 				superName,
@@ -59,6 +92,7 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 		AccessWidener.Access access = accessWidener.getClassAccess(className);
 
 		if (access == AccessWidener.ClassAccess.EXTENDABLE || access == AccessWidener.ClassAccess.ACCESSIBLE_EXTENDABLE) {
+			modified = true;
 			return;
 		}
 
@@ -71,14 +105,14 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 				name,
 				outerName,
 				innerName,
-				accessWidener.getClassAccess(name).apply(access, name, classAccess)
+				track(access, getClassAccess(name).apply(access, name, classAccess))
 		);
 	}
 
 	@Override
 	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
 		return super.visitField(
-				accessWidener.getFieldAccess(new EntryTriple(className, name, descriptor)).apply(access, name, classAccess),
+				trackMember(access, getFieldAccess(name, descriptor).apply(access, name, classAccess)),
 				name,
 				descriptor,
 				signature,
@@ -88,13 +122,89 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-		return new AccessWidenerMethodVisitor(super.visitMethod(
-				accessWidener.getMethodAccess(new EntryTriple(className, name, descriptor)).apply(access, name, classAccess),
+		MethodVisitor methodVisitor = super.visitMethod(
+				trackMember(access, getMethodAccess(name, descriptor).apply(access, name, classAccess)),
 				name,
 				descriptor,
 				signature,
 				exceptions
-		));
+		);
+
+		// Only wrap the method visitor when there may be calls to rewrite. Handing out the downstream visitor
+		// unwrapped lets a ClassWriter that shares the ClassReader's constant pool copy the method as-is.
+		if (methodVisitor == null || !rewriteMethodCalls) {
+			return methodVisitor;
+		}
+
+		return new AccessWidenerMethodVisitor(methodVisitor);
+	}
+
+	@Override
+	public void visitEnd() {
+		if (metrics != AccessWidenerMetrics.NONE) {
+			metrics.classTransformed(className, membersModified, methodCallsRewritten, System.nanoTime() - startTime);
+		}
+
+		if (event != null) {
+			event.end();
+
+			if (event.shouldCommit()) {
+				event.className = className;
+				event.rulesApplied = rulesApplied;
+				event.callsRewritten = methodCallsRewritten;
+				event.commit();
+			}
+
+			event = null;
+		}
+
+		super.visitEnd();
+	}
+
+	private AccessWidener.Access getClassAccess(String name) {
+		return ruleUsage != null ? ruleUsage.getClassAccess(name) : accessWidener.getClassAccess(name);
+	}
+
+	private AccessWidener.Access getFieldAccess(String name, String descriptor) {
+		if (ruleUsage != null) {
+			return ownerRules != null ? ownerRules.getFieldAccess(name, descriptor) : AccessWidener.FieldAccess.DEFAULT;
+		}
+
+		return accessWidener.getFieldAccess(className, name, descriptor);
+	}
+
+	private AccessWidener.Access getMethodAccess(String name, String descriptor) {
+		if (ruleUsage != null) {
+			return ownerRules != null ? ownerRules.getMethodAccess(name, descriptor) : AccessWidener.MethodAccess.DEFAULT;
+		}
+
+		return accessWidener.getMethodAccess(className, name, descriptor);
+	}
+
+	/**
+	 * Whether any part of the visited class has been changed so far.
+	 */
+	boolean isModified() {
+		return modified;
+	}
+
+	private int track(int oldAccess, int newAccess) {
+		if (oldAccess != newAccess) {
+			modified = true;
+			rulesApplied++;
+		}
+
+		return newAccess;
+	}
+
+	private int trackMember(int oldAccess, int newAccess) {
+		if (oldAccess != newAccess) {
+			modified = true;
+			membersModified++;
+			rulesApplied++;
+		}
+
+		return newAccess;
 	}
 
 	private class AccessWidenerMethodVisitor extends MethodVisitor {
@@ -106,6 +216,8 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
 			if (opcode == Opcodes.INVOKESPECIAL && isTargetMethod(owner, name, descriptor)) {
 				opcode = Opcodes.INVOKEVIRTUAL;
+				modified = true;
+				methodCallsRewritten++;
 			}
 
 			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
@@ -119,6 +231,8 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 
 					if (handle.getTag() == Opcodes.H_INVOKESPECIAL && isTargetMethod(handle.getOwner(), handle.getName(), handle.getDesc())) {
 						bootstrapMethodArguments[i] = new Handle(Opcodes.H_INVOKEVIRTUAL, handle.getOwner(), handle.getName(), handle.getDesc(), handle.isInterface());
+						modified = true;
+						methodCallsRewritten++;
 					}
 				}
 			}
@@ -127,7 +241,7 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 		}
 
 		private boolean isTargetMethod(String owner, String name, String descriptor) {
-			return owner.equals(className) && !name.equals("<init>") && accessWidener.getMethodAccess(new EntryTriple(owner, name, descriptor)) != AccessWidener.MethodAccess.DEFAULT;
+			return owner.equals(className) && !name.equals("<init>") && accessWidener.getMethodAccess(owner, name, descriptor) != AccessWidener.MethodAccess.DEFAULT;
 		}
 	}
 }
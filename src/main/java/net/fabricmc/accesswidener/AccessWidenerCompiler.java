@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Compiles the rules of an {@link AccessWidener} into a hidden class that looks them up with string switches, in the
+ * same way {@code javac} compiles a switch over strings, instead of hashing an {@link EntryTriple} into a map.
+ *
+ * <p>Hidden classes require Java 15 or newer and are defined reflectively, since this library targets Java 11. They
+ * can be unloaded as soon as the access widener that uses them is unreachable.
+ */
+final class AccessWidenerCompiler {
+	private static final String CLASS_NAME = "net/fabricmc/accesswidener/CompiledAccessWidenerRules";
+	private static final String STRING = Type.getInternalName(String.class);
+	private static final String ACCESS_DESCRIPTOR = Type.getDescriptor(AccessWidener.Access.class);
+	// Lookup.defineHiddenClass, or null before Java 15
+	private static final Method DEFINE_HIDDEN_CLASS = findDefineHiddenClass();
+
+	private AccessWidenerCompiler() {
+	}
+
+	private static Method findDefineHiddenClass() {
+		try {
+			Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			return MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, Array.newInstance(optionClass, 0).getClass());
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Compiles the rules of the given access widener.
+	 *
+	 * @return the compiled rules, or {@code null} if hidden classes are not available or the rules don't fit into a
+	 *         class file
+	 */
+	static Rules compile(AccessWidener accessWidener) {
+		if (DEFINE_HIDDEN_CLASS == null) {
+			return null;
+		}
+
+		byte[] classBytes;
+
+		try {
+			classBytes = generate(accessWidener);
+		} catch (MethodTooLargeException | ClassTooLargeException e) {
+			return null;
+		}
+
+		try {
+			Object options = Array.newInstance(DEFINE_HIDDEN_CLASS.getParameterTypes()[2].getComponentType(), 0);
+			MethodHandles.Lookup lookup = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(MethodHandles.lookup(), classBytes, true, options);
+			return (Rules) lookup.lookupClass().getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Failed to define compiled access widener rules", e);
+		}
+	}
+
+	static byte[] generate(AccessWidener accessWidener) {
+		ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		classWriter.visit(Opcodes.V11, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null, "java/lang/Object", new String[] {Type.getInternalName(Rules.class)});
+
+		MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(Opcodes.ALOAD, 0);
+		constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		constructor.visitInsn(Opcodes.RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+
+		generateClassAccess(classWriter, accessWidener.classAccess);
+		generateMemberAccess(classWriter, "getMethodAccess", "method", accessWidener.methodAccess, AccessWidener.MethodAccess.DEFAULT);
+		generateMemberAccess(classWriter, "getFieldAccess", "field", accessWidener.fieldAccess, AccessWidener.FieldAccess.DEFAULT);
+
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+
+	private static void generateClassAccess(ClassWriter classWriter, Map<String, AccessWidener.Access> classAccess) {
+		MethodVisitor method = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "getClassAccess", "(L" + STRING + ";)" + ACCESS_DESCRIPTOR, null, null);
+		method.visitCode();
+
+		SortedMap<Integer, List<String>> classes = new TreeMap<>();
+
+		for (String name : classAccess.keySet()) {
+			classes.computeIfAbsent(name.hashCode(), hash -> new ArrayList<>()).add(name);
+		}
+
+		Label notFound = new Label();
+		Label[] labels = visitHashSwitch(method, 1, classes.keySet(), notFound);
+		int i = 0;
+
+		for (List<String> names : classes.values()) {
+			method.visitLabel(labels[i++]);
+
+			for (String name : names) {
+				Label next = new Label();
+				visitEquals(method, 1, name, next);
+				visitAccess(method, classAccess.get(name));
+				method.visitLabel(next);
+			}
+
+			method.visitJumpInsn(Opcodes.GOTO, notFound);
+		}
+
+		method.visitLabel(notFound);
+		visitAccess(method, AccessWidener.ClassAccess.DEFAULT);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+	}
+
+	/**
+	 * Generates a method that switches over the owner and calls a separate method per owner that switches over the
+	 * member name, so that the size of each method only depends on the number of rules of a single owner.
+	 */
+	private static void generateMemberAccess(ClassWriter classWriter, String methodName, String ownerMethodPrefix, Map<EntryTriple, AccessWidener.Access> memberAccess, AccessWidener.Access defaultAccess) {
+		String descriptor = "(L" + STRING + ";L" + STRING + ";L" + STRING + ";)" + ACCESS_DESCRIPTOR;
+		String ownerDescriptor = "(L" + STRING + ";L" + STRING + ";)" + ACCESS_DESCRIPTOR;
+		MethodVisitor method = classWriter.visitMethod(Opcodes.ACC_PUBLIC, methodName, descriptor, null, null);
+		method.visitCode();
+
+		Map<String, List<EntryTriple>> members = new TreeMap<>();
+
+		for (EntryTriple member : memberAccess.keySet()) {
+			members.computeIfAbsent(member.getOwner(), owner -> new ArrayList<>()).add(member);
+		}
+
+		SortedMap<Integer, List<String>> owners = new TreeMap<>();
+
+		for (String owner : members.keySet()) {
+			owners.computeIfAbsent(owner.hashCode(), hash -> new ArrayList<>()).add(owner);
+		}
+
+		Label notFound = new Label();
+		Label[] labels = visitHashSwitch(method, 1, owners.keySet(), notFound);
+		int i = 0;
+		int ownerIndex = 0;
+
+		for (List<String> ownerNames : owners.values()) {
+			method.visitLabel(labels[i++]);
+
+			for (String owner : ownerNames) {
+				String ownerMethod = ownerMethodPrefix + ownerIndex++;
+				generateOwnerAccess(classWriter, ownerMethod, ownerDescriptor, members.get(owner), memberAccess, defaultAccess);
+
+				Label next = new Label();
+				visitEquals(method, 1, owner, next);
+				method.visitVarInsn(Opcodes.ALOAD, 2);
+				method.visitVarInsn(Opcodes.ALOAD, 3);
+				method.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS_NAME, ownerMethod, ownerDescriptor, false);
+				method.visitInsn(Opcodes.ARETURN);
+				method.visitLabel(next);
+			}
+
+			method.visitJumpInsn(Opcodes.GOTO, notFound);
+		}
+
+		method.visitLabel(notFound);
+		visitAccess(method, defaultAccess);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+	}
+
+	private static void generateOwnerAccess(ClassWriter classWriter, String methodName, String descriptor, List<EntryTriple> members, Map<EntryTriple, AccessWidener.Access> memberAccess, AccessWidener.Access defaultAccess) {
+		MethodVisitor method = classWriter.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, methodName, descriptor, null, null);
+		method.visitCode();
+
+		SortedMap<Integer, List<EntryTriple>> names = new TreeMap<>();
+
+		for (EntryTriple member : members) {
+			names.computeIfAbsent(member.getName().hashCode(), hash -> new ArrayList<>()).add(member);
+		}
+
+		Label notFound = new Label();
+		Label[] labels = visitHashSwitch(method, 0, names.keySet(), notFound);
+		int i = 0;
+
+		for (List<EntryTriple> entries : names.values()) {
+			method.visitLabel(labels[i++]);
+
+			for (EntryTriple member : entries) {
+				Label next = new Label();
+				visitEquals(method, 0, member.getName(), next);
+				visitEquals(method, 1, member.getDesc(), next);
+				visitAccess(method, memberAccess.get(member));
+				method.visitLabel(next);
+			}
+
+			method.visitJumpInsn(Opcodes.GOTO, notFound);
+		}
+
+		method.visitLabel(notFound);
+		visitAccess(method, defaultAccess);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+	}
+
+	/**
+	 * Switches over the hash code of the string in local variable {@code var}, returning the labels of the cases.
+	 */
+	private static Label[] visitHashSwitch(MethodVisitor method, int var, Iterable<Integer> hashes, Label notFound) {
+		List<Integer> keys = new ArrayList<>();
+		hashes.forEach(keys::add);
+		int[] keyArray = new int[keys.size()];
+		Label[] labels = new Label[keys.size()];
+
+		for (int i = 0; i < keyArray.length; i++) {
+			keyArray[i] = keys.get(i);
+			labels[i] = new Label();
+		}
+
+		method.visitVarInsn(Opcodes.ALOAD, var);
+		method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "hashCode", "()I", false);
+		method.visitLookupSwitchInsn(notFound, keyArray, labels);
+		return labels;
+	}
+
+	/**
+	 * Jumps to {@code notEqual} unless the string in local variable {@code var} equals {@code value}.
+	 */
+	private static void visitEquals(MethodVisitor method, int var, String value, Label notEqual) {
+		method.visitVarInsn(Opcodes.ALOAD, var);
+		method.visitLdcInsn(value);
+		method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "equals", "(Ljava/lang/Object;)Z", false);
+		method.visitJumpInsn(Opcodes.IFEQ, notEqual);
+	}
+
+	private static void visitAccess(MethodVisitor method, AccessWidener.Access access) {
+		Class<?> type = ((Enum<?>) access).getDeclaringClass();
+		method.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(type), ((Enum<?>) access).name(), Type.getDescriptor(type));
+		method.visitInsn(Opcodes.ARETURN);
+	}
+
+	/**
+	 * Lookups of compiled rules, implemented by the generated class.
+	 */
+	interface Rules {
+		AccessWidener.Access getClassAccess(String className);
+
+		AccessWidener.Access getMethodAccess(String owner, String name, String descriptor);
+
+		AccessWidener.Access getFieldAccess(String owner, String name, String descriptor);
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Caches the output of {@link AccessWidener#transform(byte[])} on disk, so classes don't have to be transformed
+ * again on the next launch.
+ *
+ * <p>Entries are keyed by a hash of the original class bytes and of only those rules that affect the class.
+ * Changing a rule therefore invalidates just the classes it applies to. Several processes may share the same cache
+ * directory: entries are written to a temporary file first and then atomically moved into place.
+ *
+ * <p>Once the entries exceed the configured total size, the least recently used ones are deleted. Every entry counts
+ * as at least {@value #MIN_ENTRY_SIZE} bytes, a typical file system block, so that the empty entries of classes the
+ * widener doesn't change are evicted as well.
+ */
+public final class AccessWidenerDiskCache {
+	// Changes whenever the transformation itself changes in a way that makes old entries invalid.
+	private static final byte[] FORMAT_VERSION = {1};
+	private static final String TEMP_PREFIX = "tmp-";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	static final int MIN_ENTRY_SIZE = 4096;
+
+	private final Path directory;
+	private final long maxSize;
+	private final AtomicLong size = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final Object evictionLock = new Object();
+
+	/**
+	 * @param directory The directory to store entries in. It is created if it doesn't exist.
+	 * @param maxSize   The maximum total size of all entries in bytes, counting each entry as at least
+	 *                  {@value #MIN_ENTRY_SIZE} bytes.
+	 */
+	public AccessWidenerDiskCache(Path directory, long maxSize) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+
+		Files.createDirectories(directory);
+		size.set(listEntries().stream().mapToLong(CachedFile::getEntrySize).sum());
+	}
+
+	/**
+	 * Returns the cached transformation of {@code classBytes}, transforming and caching it if necessary.
+	 *
+	 * @return the transformed class file, or {@code classBytes} itself if the class is not changed by the widener
+	 * @see AccessWidener#transform(byte[])
+	 */
+	public byte[] transform(AccessWidener accessWidener, byte[] classBytes) throws IOException {
+		ClassReader classReader = new ClassReader(classBytes);
+
+		// No need to cache anything for classes the widener doesn't even look at
+		if (!accessWidener.getTargets().contains(classReader.getClassName().replace('/', '.'))) {
+			return classBytes;
+		}
+
+		Path file = getFile(computeKey(accessWidener, classReader, classBytes));
+
+		try {
+			byte[] cached = Files.readAllBytes(file);
+			hits.increment();
+			touch(file);
+			// Unchanged classes are stored as empty files
+			return cached.length == 0 ? classBytes : cached;
+		} catch (NoSuchFileException e) {
+			misses.increment();
+		}
+
+		byte[] transformed = accessWidener.transform(classBytes);
+		store(file, transformed == classBytes ? new byte[0] : transformed);
+		return transformed;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * The total size of all entries written or found by this instance, counting each entry as at least
+	 * {@value #MIN_ENTRY_SIZE} bytes. Entries written by other processes are only accounted for after the next
+	 * eviction.
+	 */
+	public long getSize() {
+		return size.get();
+	}
+
+	private String computeKey(AccessWidener accessWidener, ClassReader classReader, byte[] classBytes) {
+		MessageDigest digest = createDigest();
+		digest.update(FORMAT_VERSION);
+		digest.update(classBytes);
+		accessWidener.digestRules(classReader.getClassName(), readInnerClasses(classReader), digest);
+
+		byte[] hash = digest.digest();
+		char[] key = new char[hash.length * 2];
+
+		for (int i = 0; i < hash.length; i++) {
+			key[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+			key[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+		}
+
+		return new String(key);
+	}
+
+	private static Set<String> readInnerClasses(ClassReader classReader) {
+		Set<String> innerClasses = new TreeSet<>();
+		classReader.accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public void visitInnerClass(String name, String outerName, String innerName, int access) {
+				innerClasses.add(name);
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return innerClasses;
+	}
+
+	static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	private Path getFile(String key) {
+		return directory.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	/**
+	 * Writes an entry unless it already exists.
+	 *
+	 * @return whether the entry was created by this call
+	 */
+	boolean store(Path file, byte[] content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tempFile = Files.createTempFile(file.getParent(), TEMP_PREFIX, null);
+		boolean created;
+
+		try {
+			Files.write(tempFile, content);
+			created = publish(tempFile, file);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		// Only count each file once, if another thread or process stored the same entry it has the same content
+		if (created && size.addAndGet(getEntrySize(content.length)) > maxSize) {
+			evict();
+		}
+
+		return created;
+	}
+
+	private static boolean publish(Path tempFile, Path file) throws IOException {
+		try {
+			// Linking fails atomically if the file exists, and readers never see a partially written file
+			Files.createLink(file, tempFile);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			// The file system doesn't support hard links, fall back to moving without replacing
+		}
+
+		try {
+			Files.move(tempFile, file);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+
+	static long getEntrySize(long fileSize) {
+		return Math.max(fileSize, MIN_ENTRY_SIZE);
+	}
+
+	private static void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Evicted by someone else in the meantime, or not writable. Either way the entry was still valid.
+		}
+	}
+
+	private void evict() throws IOException {
+		synchronized (evictionLock) {
+			// Start from what's actually on disk, since other processes may be using the same directory
+			List<CachedFile> entries = listEntries();
+			long totalSize = entries.stream().mapToLong(CachedFile::getEntrySize).sum();
+			entries.sort(Comparator.comparing(CachedFile::getLastModified));
+
+			for (CachedFile entry : entries) {
+				if (totalSize <= maxSize) {
+					break;
+				}
+
+				Files.deleteIfExists(entry.path);
+				totalSize -= entry.getEntrySize();
+			}
+
+			size.set(totalSize);
+		}
+	}
+
+	private List<CachedFile> listEntries() throws IOException {
+		List<CachedFile> entries = new ArrayList<>();
+
+		try (DirectoryStream<Path> subDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+			for (Path subDirectory : subDirectories) {
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(subDirectory)) {
+					for (Path file : files) {
+						if (file.getFileName().toString().startsWith(TEMP_PREFIX)) {
+							continue;
+						}
+
+						try {
+							BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+							entries.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime()));
+						} catch (NoSuchFileException e) {
+							// Deleted concurrently
+						}
+					}
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	private static final class CachedFile {
+		final Path path;
+		final long size;
+		final FileTime lastModified;
+
+		CachedFile(Path path, long size, FileTime lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		long getEntrySize() {
+			return AccessWidenerDiskCache.getEntrySize(size);
+		}
+
+		FileTime getLastModified() {
+			return lastModified;
+		}
+	}
+}
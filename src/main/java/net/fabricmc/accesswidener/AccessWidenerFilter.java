@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Arrays;
+
+/**
+ * Selects the entries that {@link AccessWidenerReader} passes to its visitor.
+ *
+ * <p>The reader checks the filter as soon as it has scanned the access, kind and owner of a line, so rejected lines
+ * aren't fully parsed. This also means that they aren't validated either. Filters are immutable, start with
+ * {@link #ALL} and narrow it down:
+ *
+ * <pre>{@code
+ * AccessWidenerFilter filter = AccessWidenerFilter.ALL
+ *         .transitiveOnly()
+ *         .kinds(AccessWidenerFilter.METHODS | AccessWidenerFilter.FIELDS)
+ *         .ownerPrefixes("net/minecraft/world/");
+ * }</pre>
+ */
+public final class AccessWidenerFilter {
+	public static final int CLASSES = 1;
+	public static final int METHODS = 1 << 1;
+	public static final int FIELDS = 1 << 2;
+	public static final int ALL_KINDS = CLASSES | METHODS | FIELDS;
+
+	/**
+	 * Accepts all entries.
+	 */
+	public static final AccessWidenerFilter ALL = new AccessWidenerFilter(false, ALL_KINDS, null);
+
+	private final boolean transitiveOnly;
+	private final int kinds;
+	// null to accept all owners
+	private final String[] ownerPrefixes;
+
+	private AccessWidenerFilter(boolean transitiveOnly, int kinds, String[] ownerPrefixes) {
+		this.transitiveOnly = transitiveOnly;
+		this.kinds = kinds;
+		this.ownerPrefixes = ownerPrefixes;
+	}
+
+	/**
+	 * Returns a filter that also rejects entries that aren't transitive.
+	 */
+	public AccessWidenerFilter transitiveOnly() {
+		return transitiveOnly ? this : new AccessWidenerFilter(true, kinds, ownerPrefixes);
+	}
+
+	/**
+	 * Returns a filter that only accepts the given kinds of entries, out of those accepted by this filter.
+	 *
+	 * @param kinds a combination of {@link #CLASSES}, {@link #METHODS} and {@link #FIELDS}
+	 */
+	public AccessWidenerFilter kinds(int kinds) {
+		return new AccessWidenerFilter(transitiveOnly, this.kinds & kinds, ownerPrefixes);
+	}
+
+	/**
+	 * Returns a filter that only accepts entries whose owner (or class name, for class entries) starts with one of the
+	 * given prefixes. Replaces any prefixes set before.
+	 *
+	 * @param prefixes internal names or packages, such as {@code net/minecraft/world/}
+	 */
+	public AccessWidenerFilter ownerPrefixes(String... prefixes) {
+		return new AccessWidenerFilter(transitiveOnly, kinds, prefixes.clone());
+	}
+
+	public boolean isTransitiveOnly() {
+		return transitiveOnly;
+	}
+
+	public int getKinds() {
+		return kinds;
+	}
+
+	/**
+	 * Whether this filter accepts all entries, in which case the reader doesn't need to check it.
+	 */
+	public boolean acceptsAll() {
+		return !transitiveOnly && kinds == ALL_KINDS && ownerPrefixes == null;
+	}
+
+	/**
+	 * @param kind one of {@link #CLASSES}, {@link #METHODS} and {@link #FIELDS}
+	 */
+	public boolean accepts(int kind, String owner, boolean transitive) {
+		return (!transitiveOnly || transitive) && acceptsKind(kind) && acceptsOwner(owner, 0, owner.length());
+	}
+
+	boolean acceptsKind(int kind) {
+		return (kinds & kind) != 0;
+	}
+
+	/**
+	 * Checks the owner in {@code line} between {@code start} and {@code end}, without extracting it.
+	 */
+	boolean acceptsOwner(String line, int start, int end) {
+		if (ownerPrefixes == null) {
+			return true;
+		}
+
+		for (String prefix : ownerPrefixes) {
+			if (prefix.length() <= end - start && line.startsWith(prefix, start)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "AccessWidenerFilter{transitiveOnly=" + transitiveOnly + ",kinds=" + kinds
+				+ ",ownerPrefixes=" + Arrays.toString(ownerPrefixes) + "}";
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Applies an {@link AccessWidener} to every targeted class of a jar file, writing the result to a new jar.
+ *
+ * <p>Entries are streamed from the input jar in order. Targeted classes are transformed on a pool of worker threads,
+ * while all other entries are copied through unchanged. The output keeps the entry order of the input and uses a
+ * fixed timestamp for all entries, so transforming the same input twice produces identical jars.
+ */
+public final class AccessWidenerJarTransformer {
+	// Same constant as Gradle uses for reproducible archives, 1980-02-01 00:00 local time. This avoids the
+	// DOS epoch, which some zip tools treat as "no timestamp".
+	private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+	private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+	private final AccessWidener accessWidener;
+	private final int threads;
+	private final long maxInFlightBytes;
+
+	/**
+	 * Constructs a transformer using one thread per available processor and a 64 MiB in-flight limit.
+	 */
+	public AccessWidenerJarTransformer(AccessWidener accessWidener) {
+		this(accessWidener, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_IN_FLIGHT_BYTES);
+	}
+
+	/**
+	 * @param accessWidener    The access widener to apply.
+	 * @param threads          The number of worker threads used to transform classes.
+	 * @param maxInFlightBytes The maximum number of entry bytes that are read but not yet written. Reading the input
+	 *                         pauses until earlier entries have been written once this limit is reached. A single entry
+	 *                         larger than the limit is still processed.
+	 */
+	public AccessWidenerJarTransformer(AccessWidener accessWidener, int threads, long maxInFlightBytes) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is required, got " + threads);
+		}
+
+		if (maxInFlightBytes < 1) {
+			throw new IllegalArgumentException("In-flight limit must be positive, got " + maxInFlightBytes);
+		}
+
+		this.accessWidener = accessWidener;
+		this.threads = threads;
+		this.maxInFlightBytes = maxInFlightBytes;
+	}
+
+	public Stats transform(Path input, Path output) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(input));
+				OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+			return transform(in, out);
+		}
+	}
+
+	/**
+	 * Reads a jar from {@code input} and writes the transformed jar to {@code output}. Neither stream is closed.
+	 */
+	public Stats transform(InputStream input, OutputStream output) throws IOException {
+		AtomicInteger threadIndex = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "AccessWidener jar transformer " + threadIndex.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			return new Run(executor).transform(input, output);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private boolean isTarget(String entryName) {
+		if (!entryName.endsWith(".class")) {
+			return false;
+		}
+
+		String className = entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+		return accessWidener.getTargets().contains(className);
+	}
+
+	private static byte[] readEntry(ZipInputStream in, ZipEntry entry) throws IOException {
+		long size = entry.getSize();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size >= 0 && size < Integer.MAX_VALUE ? (int) size : 8192);
+		byte[] buffer = new byte[8192];
+		int read;
+
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * State of a single jar transformation. Entries are read and written by the calling thread, only the class
+	 * transformations themselves run on the executor.
+	 */
+	private final class Run {
+		private final ExecutorService executor;
+		private final ArrayDeque<PendingEntry> pending = new ArrayDeque<>();
+		private long inFlightBytes;
+		private int entries;
+		private int classesTransformed;
+		private long bytesRead;
+		private long bytesWritten;
+
+		Run(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		Stats transform(InputStream input, OutputStream output) throws IOException {
+			long start = System.nanoTime();
+			ZipInputStream zipIn = new ZipInputStream(input);
+			ZipOutputStream zipOut = new ZipOutputStream(output);
+			ZipEntry entry;
+
+			while ((entry = zipIn.getNextEntry()) != null) {
+				String name = entry.getName();
+				byte[] content = entry.isDirectory() ? new byte[0] : readEntry(zipIn, entry);
+				entries++;
+				bytesRead += content.length;
+
+				// Keep the amount of buffered data bounded by writing out finished entries first
+				while (!pending.isEmpty() && inFlightBytes + content.length > maxInFlightBytes) {
+					writeNext(zipOut, true);
+				}
+
+				CompletableFuture<byte[]> result;
+
+				if (!entry.isDirectory() && isTarget(name)) {
+					result = CompletableFuture.supplyAsync(() -> accessWidener.transform(content), executor);
+				} else {
+					result = CompletableFuture.completedFuture(content);
+				}
+
+				pending.add(new PendingEntry(name, content, result));
+				inFlightBytes += content.length;
+
+				while (!pending.isEmpty() && pending.peek().result.isDone()) {
+					writeNext(zipOut, false);
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				writeNext(zipOut, true);
+			}
+
+			zipOut.finish();
+			return new Stats(entries, classesTransformed, bytesRead, bytesWritten, System.nanoTime() - start);
+		}
+
+		private void writeNext(ZipOutputStream zipOut, boolean wait) throws IOException {
+			PendingEntry next = pending.remove();
+			byte[] content;
+
+			try {
+				content = wait ? next.result.get() : next.result.getNow(null);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while transforming " + next.name, e);
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to transform " + next.name, e.getCause());
+			}
+
+			ZipEntry entry = new ZipEntry(next.name);
+			entry.setTime(ENTRY_TIME);
+			zipOut.putNextEntry(entry);
+			zipOut.write(content);
+			zipOut.closeEntry();
+
+			inFlightBytes -= next.content.length;
+			bytesWritten += content.length;
+
+			// The access widener returns the input array itself for classes it doesn't change
+			if (content != next.content) {
+				classesTransformed++;
+			}
+		}
+	}
+
+	private static final class PendingEntry {
+		final String name;
+		final byte[] content;
+		final CompletableFuture<byte[]> result;
+
+		PendingEntry(String name, byte[] content, CompletableFuture<byte[]> result) {
+			this.name = name;
+			this.content = content;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Throughput statistics of a finished jar transformation.
+	 */
+	public static final class Stats {
+		private final int entries;
+		private final int classesTransformed;
+		private final long bytesRead;
+		private final long bytesWritten;
+		private final long nanos;
+
+		Stats(int entries, int classesTransformed, long bytesRead, long bytesWritten, long nanos) {
+			this.entries = entries;
+			this.classesTransformed = classesTransformed;
+			this.bytesRead = bytesRead;
+			this.bytesWritten = bytesWritten;
+			this.nanos = nanos;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		/**
+		 * The number of classes whose bytes were changed by the access widener. Targeted classes that already had the
+		 * widened access are not counted.
+		 */
+		public int getClassesTransformed() {
+			return classesTransformed;
+		}
+
+		/**
+		 * The uncompressed size of all entries read from the input jar.
+		 */
+		public long getBytesRead() {
+			return bytesRead;
+		}
+
+		/**
+		 * The uncompressed size of all entries written to the output jar.
+		 */
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			double seconds = nanos / 1e9;
+			return String.format(Locale.ROOT, "Transformed %d of %d entries in %.1f ms (%.0f entries/s, %.1f MiB/s)",
+					classesTransformed, entries, nanos / 1e6, entries / seconds, bytesRead / seconds / (1024 * 1024));
+		}
+	}
+}
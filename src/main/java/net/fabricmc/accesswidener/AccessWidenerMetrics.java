@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+/**
+ * Receives measurements from reading access widener files and transforming classes.
+ *
+ * <p>Callbacks are made once per file or class, from the thread doing the work, and must be thread-safe.
+ * Measurements are only taken if the metrics are not {@link #NONE}.
+ *
+ * @see AccessWidenerReader#AccessWidenerReader(AccessWidenerVisitor, AccessWidenerMetrics)
+ * @see AccessWidener#setMetrics(AccessWidenerMetrics)
+ * @see CountingAccessWidenerMetrics
+ */
+public interface AccessWidenerMetrics {
+	/**
+	 * Metrics that ignore all measurements.
+	 */
+	AccessWidenerMetrics NONE = new AccessWidenerMetrics() { };
+
+	/**
+	 * Called after an access widener file has been read successfully.
+	 *
+	 * @param lines         the number of lines in the file, including the header, comments and empty lines
+	 * @param classEntries  the number of class entries passed to the visitor
+	 * @param methodEntries the number of method entries passed to the visitor
+	 * @param fieldEntries  the number of field entries passed to the visitor
+	 * @param bytes         the size of the file in bytes if it was read from a byte array, otherwise the number of
+	 *                      characters read after the header
+	 * @param nanos         the time taken to read the file, including the time spent in the visitor
+	 */
+	default void fileRead(int lines, int classEntries, int methodEntries, int fieldEntries, long bytes, long nanos) {
+	}
+
+	/**
+	 * Called after a class has been visited by an {@link AccessWidenerClassVisitor}.
+	 *
+	 * @param className       the internal name of the class
+	 * @param membersModified the number of fields and methods whose access was changed
+	 * @param callsRewritten  the number of {@code INVOKESPECIAL} instructions and method handles changed to
+	 *                        {@code INVOKEVIRTUAL}
+	 * @param nanos           the time taken to visit the class, including the time spent in downstream visitors
+	 */
+	default void classTransformed(String className, int membersModified, int callsRewritten, long nanos) {
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Builds a visitor that passes entries through a series of stages to one or more sinks.
+ *
+ * <p>A pipeline that only uses the built-in stages ({@link Builder#transitiveOnly()} and at most one
+ * {@link Builder#remap}) is fused into a single visitor that filters, remaps and forwards each entry without
+ * going through a chain of decorators. Pipelines with custom stages are built from the usual decorators instead:
+ * {@link TransitiveOnlyFilter}, {@link AccessWidenerRemapper} and {@link ForwardingVisitor}. Both produce the same
+ * result.
+ *
+ * <pre>{@code
+ * AccessWidenerVisitor visitor = AccessWidenerPipeline.builder()
+ *         .transitiveOnly()
+ *         .remap(remapper, "intermediary", "named")
+ *         .build(accessWidener, writer);
+ * }</pre>
+ */
+public final class AccessWidenerPipeline {
+	private AccessWidenerPipeline() {
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+		// Decorators in the order entries pass through them, for building the pipeline from decorators
+		private final List<UnaryOperator<AccessWidenerVisitor>> stages = new ArrayList<>();
+		private boolean fusable = true;
+		private boolean transitiveOnly;
+		private Remapper remapper;
+		private String fromNamespace;
+		private String toNamespace;
+
+		private Builder() {
+		}
+
+		/**
+		 * Only passes on transitive entries, see {@link TransitiveOnlyFilter}.
+		 */
+		public Builder transitiveOnly() {
+			stages.add(TransitiveOnlyFilter::new);
+			transitiveOnly = true;
+			return this;
+		}
+
+		/**
+		 * Remaps the entries, see {@link AccessWidenerRemapper}.
+		 */
+		public Builder remap(Remapper remapper, String fromNamespace, String toNamespace) {
+			CachingRemapper cachingRemapper = remapper instanceof CachingRemapper ? (CachingRemapper) remapper : new CachingRemapper(remapper);
+			stages.add(delegate -> new AccessWidenerRemapper(delegate, cachingRemapper, fromNamespace, toNamespace));
+
+			if (this.remapper != null) {
+				// Only a single remapping step can be fused
+				fusable = false;
+			}
+
+			this.remapper = cachingRemapper;
+			this.fromNamespace = fromNamespace;
+			this.toNamespace = toNamespace;
+			return this;
+		}
+
+		/**
+		 * Adds a custom stage. Pipelines with custom stages are not fused.
+		 *
+		 * @param decorator creates a visitor that passes entries on to the given visitor
+		 */
+		public Builder stage(UnaryOperator<AccessWidenerVisitor> decorator) {
+			stages.add(decorator);
+			fusable = false;
+			return this;
+		}
+
+		/**
+		 * Builds a visitor that passes the entries through the stages to all given sinks.
+		 */
+		public AccessWidenerVisitor build(AccessWidenerVisitor... sinks) {
+			if (fusable) {
+				return new FusedVisitor(transitiveOnly, remapper, fromNamespace, toNamespace, sinks.clone());
+			}
+
+			AccessWidenerVisitor visitor = sinks.length == 1 ? sinks[0] : new ForwardingVisitor(sinks);
+
+			for (int i = stages.size() - 1; i >= 0; i--) {
+				visitor = stages.get(i).apply(visitor);
+			}
+
+			return visitor;
+		}
+	}
+
+	/**
+	 * Filters, remaps and forwards entries in a single visitor.
+	 */
+	static final class FusedVisitor implements AccessWidenerBatchVisitor {
+		private final boolean transitiveOnly;
+		private final Remapper remapper;
+		private final String fromNamespace;
+		private final String toNamespace;
+		private final AccessWidenerVisitor[] sinks;
+
+		FusedVisitor(boolean transitiveOnly, Remapper remapper, String fromNamespace, String toNamespace, AccessWidenerVisitor[] sinks) {
+			this.transitiveOnly = transitiveOnly;
+			this.remapper = remapper;
+			this.fromNamespace = fromNamespace;
+			this.toNamespace = toNamespace;
+			this.sinks = sinks;
+		}
+
+		@Override
+		public void visitHeader(String namespace) {
+			if (remapper != null) {
+				if (!fromNamespace.equals(namespace)) {
+					throw new IllegalArgumentException("Cannot remap access widener from namespace '" + namespace + "'."
+							+ " Expected: '" + fromNamespace + "'");
+				}
+
+				namespace = toNamespace;
+			}
+
+			for (AccessWidenerVisitor sink : sinks) {
+				sink.visitHeader(namespace);
+			}
+		}
+
+		@Override
+		public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+			if (transitiveOnly && !transitive) {
+				return;
+			}
+
+			if (remapper != null) {
+				name = remapper.map(name);
+			}
+
+			for (AccessWidenerVisitor sink : sinks) {
+				sink.visitClass(name, access, transitive);
+			}
+		}
+
+		@Override
+		public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+			if (transitiveOnly && !transitive) {
+				return;
+			}
+
+			if (remapper != null) {
+				name = remapper.mapMethodName(owner, name, descriptor);
+				owner = remapper.map(owner);
+				descriptor = remapper.mapDesc(descriptor);
+			}
+
+			for (AccessWidenerVisitor sink : sinks) {
+				sink.visitMethod(owner, name, descriptor, access, transitive);
+			}
+		}
+
+		@Override
+		public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+			if (transitiveOnly && !transitive) {
+				return;
+			}
+
+			if (remapper != null) {
+				name = remapper.mapFieldName(owner, name, descriptor);
+				owner = remapper.map(owner);
+				descriptor = remapper.mapDesc(descriptor);
+			}
+
+			for (AccessWidenerVisitor sink : sinks) {
+				sink.visitField(owner, name, descriptor, access, transitive);
+			}
+		}
+	}
+}
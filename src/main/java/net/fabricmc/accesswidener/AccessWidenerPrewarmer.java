@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transforms all targets of an {@link AccessWidener} in the background, before they are requested by a class loader.
+ *
+ * <p>A class loader asks for a prepared class with {@link #take(String)} and falls back to transforming the class
+ * itself if it isn't ready yet. The class files are read from the given {@link ClassSource}, so the loader must
+ * load the class from the same source for the prepared result to be valid.
+ *
+ * <p>Prepared classes are kept until they are taken. Once they would exceed the memory budget, further results are
+ * discarded and those classes are left to the loader. Results for classes that were requested before they were ready
+ * are discarded as well.
+ */
+public final class AccessWidenerPrewarmer {
+	private final AccessWidener accessWidener;
+	private final ClassSource classSource;
+	private final long memoryBudget;
+	private final ExecutorService executor;
+	// Prepared class files, by binary name (a.b.C)
+	private final Map<String, byte[]> ready = new ConcurrentHashMap<>();
+	// Classes that have been requested with take, whether they were ready or not
+	private final Set<String> requested = ConcurrentHashMap.newKeySet();
+	private final AtomicLong readyBytes = new AtomicLong();
+	private final LongAdder prepared = new LongAdder();
+	private final LongAdder taken = new LongAdder();
+	private final LongAdder discarded = new LongAdder();
+	private volatile boolean cancelled;
+
+	/**
+	 * @param accessWidener The access widener whose targets are transformed.
+	 * @param classSource   The source to read the targeted classes from.
+	 * @param threads       The number of background threads.
+	 * @param memoryBudget  The maximum total size in bytes of the prepared classes that haven't been taken yet.
+	 */
+	public AccessWidenerPrewarmer(AccessWidener accessWidener, ClassSource classSource, int threads, long memoryBudget) {
+		this.accessWidener = accessWidener;
+		this.classSource = classSource;
+		this.memoryBudget = memoryBudget;
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "AccessWidener prewarmer");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts transforming all current targets of the access widener. Must only be called once.
+	 */
+	public void start() {
+		// Copy the targets, the set isn't safe to iterate while the loader thread may still add to it
+		List<String> targets = new ArrayList<>(accessWidener.getTargets());
+
+		for (String target : targets) {
+			executor.execute(() -> prepare(target));
+		}
+
+		executor.shutdown();
+	}
+
+	private void prepare(String className) {
+		if (cancelled || readyBytes.get() >= memoryBudget || requested.contains(className)) {
+			return;
+		}
+
+		byte[] transformed;
+
+		try {
+			byte[] classBytes = classSource.read(className.replace('.', '/'));
+
+			if (classBytes == null) {
+				return;
+			}
+
+			transformed = accessWidener.transform(classBytes);
+		} catch (IOException | RuntimeException e) {
+			// Leave it to the class loader, which can report the error in context
+			return;
+		}
+
+		if (cancelled || readyBytes.addAndGet(transformed.length) > memoryBudget) {
+			readyBytes.addAndGet(-transformed.length);
+			discarded.increment();
+			return;
+		}
+
+		ready.put(className, transformed);
+
+		// The class may have been requested while it was transformed, in which case nothing takes it anymore.
+		// Checking after storing it makes sure that either take or this finds it.
+		if (requested.contains(className) && ready.remove(className, transformed)) {
+			readyBytes.addAndGet(-transformed.length);
+			discarded.increment();
+			return;
+		}
+
+		prepared.increment();
+	}
+
+	/**
+	 * Removes and returns the prepared class file of the given class.
+	 *
+	 * @param className the binary name of the class, such as {@code a.b.C}
+	 * @return the transformed class file, or {@code null} if it isn't ready (yet)
+	 */
+	public byte[] take(String className) {
+		requested.add(className);
+		byte[] classBytes = ready.remove(className);
+
+		if (classBytes != null) {
+			readyBytes.addAndGet(-classBytes.length);
+			taken.increment();
+		}
+
+		return classBytes;
+	}
+
+	/**
+	 * Stops transforming classes. Classes that are already prepared can still be taken.
+	 */
+	public void cancel() {
+		cancelled = true;
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Waits until all targets have been processed or the preparation was cancelled.
+	 *
+	 * @return {@code true} if preparation finished, {@code false} if the timeout elapsed first
+	 */
+	public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * The number of classes that have been transformed and stored for the class loader.
+	 */
+	public long getPrepared() {
+		return prepared.sum();
+	}
+
+	public long getTaken() {
+		return taken.sum();
+	}
+
+	/**
+	 * The number of transformed classes that were thrown away because they exceeded the memory budget, or because the
+	 * class was requested before it was ready.
+	 */
+	public long getDiscarded() {
+		return discarded.sum();
+	}
+
+	/**
+	 * The total size of the prepared classes that haven't been taken yet.
+	 */
+	public long getReadyBytes() {
+		return readyBytes.get();
+	}
+}
@@ -41,14 +41,55 @@ public final class AccessWidenerReader {
 	private static final int V1 = 1;
 	private static final int V2 = 2;
 
+	// Maximum number of entries passed to a batch visitor at once
+	private static final int BATCH_SIZE = 256;
+
 	private final AccessWidenerVisitor visitor;
 
+	// Entries that haven't been passed to the visitor yet, if it is a batch visitor
+	private final AccessWidenerBatch batch;
+
+	private final AccessWidenerMetrics metrics;
+
+	private final AccessWidenerFilter filter;
+
 	private final JvmTranslator jvmTranslator = new JvmTranslator();
 
 	private int lineNumber;
 
+	// Number of entries of each kind passed to the visitor while reading the current file
+	private int classEntries;
+	private int methodEntries;
+	private int fieldEntries;
+
 	public AccessWidenerReader(AccessWidenerVisitor visitor) {
+		this(visitor, AccessWidenerMetrics.NONE);
+	}
+
+	/**
+	 * Constructs a reader that reports to {@code metrics} after each file has been read.
+	 */
+	public AccessWidenerReader(AccessWidenerVisitor visitor, AccessWidenerMetrics metrics) {
+		this(visitor, metrics, AccessWidenerFilter.ALL);
+	}
+
+	/**
+	 * Constructs a reader that only passes entries accepted by {@code filter} to the visitor. Lines with other
+	 * entries are skipped without being fully parsed or validated.
+	 */
+	public AccessWidenerReader(AccessWidenerVisitor visitor, AccessWidenerFilter filter) {
+		this(visitor, AccessWidenerMetrics.NONE, filter);
+	}
+
+	/**
+	 * Constructs a reader that only passes entries accepted by {@code filter} to the visitor, and reports to
+	 * {@code metrics} after each file has been read.
+	 */
+	public AccessWidenerReader(AccessWidenerVisitor visitor, AccessWidenerMetrics metrics, AccessWidenerFilter filter) {
 		this.visitor = visitor;
+		this.metrics = metrics;
+		this.filter = filter;
+		this.batch = visitor instanceof AccessWidenerBatchVisitor ? new AccessWidenerBatch(BATCH_SIZE) : null;
 	}
 
 	public static int readVersion(byte[] content) {
@@ -67,7 +108,7 @@ public final class AccessWidenerReader {
 		String strContent = new String(content, ENCODING);
 
 		try {
-			read(new BufferedReader(new StringReader(strContent)), currentNamespace);
+			read(new BufferedReader(new StringReader(strContent)), currentNamespace, content.length);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -78,9 +119,33 @@ public final class AccessWidenerReader {
 	}
 
 	public void read(BufferedReader reader, String currentNamespace) throws IOException {
+		read(reader, currentNamespace, -1);
+	}
+
+	/**
+	 * @param size the size of the content in bytes, or -1 to count the characters read instead
+	 */
+	private void read(BufferedReader reader, String currentNamespace, long size) throws IOException {
+		long startTime = metrics != AccessWidenerMetrics.NONE ? System.nanoTime() : 0;
+		long characters = 0;
+		JfrEvents.ReadEvent event = JfrEvents.AVAILABLE ? new JfrEvents.ReadEvent() : null;
+
+		if (event != null) {
+			event.begin();
+		}
+
 		Header header = readHeader(reader);
 		lineNumber = 1;
 
+		if (batch != null) {
+			// Discard the remaining entries of a previous file that failed to read
+			batch.clear();
+		}
+
+		classEntries = 0;
+		methodEntries = 0;
+		fieldEntries = 0;
+
 		int version = header.version;
 
 		if (currentNamespace != null && !header.namespace.equals(currentNamespace)) {
@@ -92,53 +157,93 @@ public final class AccessWidenerReader {
 		String line;
 
 		Pattern delimiter = version < V2 ? V1_DELIMITER : V2_DELIMITER;
+		boolean filtered = !filter.acceptsAll();
 
-		while ((line = reader.readLine()) != null) {
-			lineNumber++;
+		try {
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				characters += line.length() + 1;
 
-			line = handleComment(version, line);
+				line = handleComment(version, line);
 
-			if (line.isEmpty()) {
-				continue;
-			}
+				if (line.isEmpty()) {
+					continue;
+				}
 
-			if (Character.isWhitespace(line.codePointAt(0))) {
-				throw error("Leading whitespace is not allowed");
-			}
+				if (Character.isWhitespace(line.codePointAt(0))) {
+					throw error("Leading whitespace is not allowed");
+				}
+
+				if (filtered && isRejected(line, version)) {
+					continue;
+				}
 
-			// Note that this trims trailing spaces. See the docs of split for details.
-			List<String> tokens = Arrays.asList(delimiter.split(line));
+				// Note that this trims trailing spaces. See the docs of split for details.
+				List<String> tokens = Arrays.asList(delimiter.split(line));
 
-			String accessType = tokens.get(0);
+				String accessType = tokens.get(0);
 
-			boolean transitive = false;
+				boolean transitive = false;
 
-			if (version >= V2) {
-				// transitive access widener flag
-				if (accessType.startsWith(TRANSITIVE_PREFIX)) {
-					accessType = accessType.substring(TRANSITIVE_PREFIX.length());
-					transitive = true;
+				if (version >= V2) {
+					// transitive access widener flag
+					if (accessType.startsWith(TRANSITIVE_PREFIX)) {
+						accessType = accessType.substring(TRANSITIVE_PREFIX.length());
+						transitive = true;
+					}
 				}
-			}
 
-			AccessType access = readAccessType(accessType);
+				AccessType access = readAccessType(accessType);
+
+				if (tokens.size() < 2) {
+					throw error("Expected <class|field|method> following " + tokens.get(0));
+				}
 
-			if (tokens.size() < 2) {
-				throw error("Expected <class|field|method> following " + tokens.get(0));
+				switch (tokens.get(1)) {
+				case "class":
+					handleClass(line, tokens, transitive, access);
+					break;
+				case "field":
+					handleField(line, tokens, transitive, access);
+					break;
+				case "method":
+					handleMethod(line, tokens, transitive, access);
+					break;
+				default:
+					throw error("Unsupported type: '" + tokens.get(1) + "'");
+				}
+			}
+		} catch (AccessWidenerFormatException e) {
+			// Entries read before the invalid line are still visited, as without batching
+			if (batch != null && !batch.isEmpty()) {
+				flushBatch();
 			}
 
-			switch (tokens.get(1)) {
-			case "class":
-				handleClass(line, tokens, transitive, access);
-				break;
-			case "field":
-				handleField(line, tokens, transitive, access);
-				break;
-			case "method":
-				handleMethod(line, tokens, transitive, access);
-				break;
-			default:
-				throw error("Unsupported type: '" + tokens.get(1) + "'");
+			throw e;
+		}
+
+		if (batch != null && !batch.isEmpty()) {
+			flushBatch();
+		}
+
+		if (size < 0) {
+			size = characters;
+		}
+
+		if (metrics != AccessWidenerMetrics.NONE) {
+			metrics.fileRead(lineNumber, classEntries, methodEntries, fieldEntries, size, System.nanoTime() - startTime);
+		}
+
+		if (event != null) {
+			event.end();
+
+			if (event.shouldCommit()) {
+				event.namespace = header.namespace;
+				event.version = version;
+				event.entries = classEntries + methodEntries + fieldEntries;
+				event.lines = lineNumber;
+				event.size = size;
+				event.commit();
 			}
 		}
 	}
@@ -189,11 +294,102 @@ public final class AccessWidenerReader {
 
 		String name = toClassDesc(tokens.get(2));
 
+		if (!filter.acceptsOwner(name, 0, name.length())) {
+			return;
+		}
+
+		if (batch != null) {
+			batch.addClass(name, access, transitive);
+			batch.setLine(lineNumber);
+
+			if (batch.size() == BATCH_SIZE) {
+				flushBatch();
+			}
+		} else {
+			try {
+				visitor.visitClass(name, access, transitive);
+			} catch (Exception e) {
+				throw error(e.toString());
+			}
+		}
+
+		classEntries++;
+	}
+
+	/**
+	 * Passes the pending entries to the batch visitor. Errors thrown for an entry are reported for its line if the
+	 * visitor passes them on with {@link AccessWidenerBatch#acceptEntries}, and for the line that was read last
+	 * otherwise.
+	 */
+	private void flushBatch() {
 		try {
-			visitor.visitClass(name, access, transitive);
+			((AccessWidenerBatchVisitor) visitor).visitBatch(batch);
+		} catch (AccessWidenerFormatException e) {
+			throw e;
 		} catch (Exception e) {
 			throw error(e.toString());
+		} finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Checks the access, kind and owner of a line against the filter, without splitting the whole line.
+	 * Lines with an unknown kind are never rejected, so that they are reported as usual. Owners that aren't
+	 * internal names are checked after they have been translated.
+	 */
+	private boolean isRejected(String line, int version) {
+		int kindStart = skipDelimiters(line, skipToken(line, 0, version), version);
+		int kindEnd = skipToken(line, kindStart, version);
+		int kind;
+
+		if (isToken(line, kindStart, kindEnd, "class")) {
+			kind = AccessWidenerFilter.CLASSES;
+		} else if (isToken(line, kindStart, kindEnd, "method")) {
+			kind = AccessWidenerFilter.METHODS;
+		} else if (isToken(line, kindStart, kindEnd, "field")) {
+			kind = AccessWidenerFilter.FIELDS;
+		} else {
+			return false;
+		}
+
+		if (!filter.acceptsKind(kind)) {
+			return true;
+		}
+
+		if (filter.isTransitiveOnly() && !(version >= V2 && line.startsWith(TRANSITIVE_PREFIX))) {
+			return true;
 		}
+
+		int ownerStart = skipDelimiters(line, kindEnd, version);
+		int ownerEnd = skipToken(line, ownerStart, version);
+		int slash = line.indexOf('/', ownerStart);
+		return slash >= 0 && slash < ownerEnd && !filter.acceptsOwner(line, ownerStart, ownerEnd);
+	}
+
+	private static boolean isToken(String line, int start, int end, String token) {
+		return end - start == token.length() && line.startsWith(token, start);
+	}
+
+	private static int skipToken(String line, int index, int version) {
+		while (index < line.length() && !isDelimiter(line.charAt(index), version)) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static int skipDelimiters(String line, int index, int version) {
+		while (index < line.length() && isDelimiter(line.charAt(index), version)) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static boolean isDelimiter(char c, int version) {
+		// Matches V1_DELIMITER and V2_DELIMITER
+		return version < V2 ? Character.isWhitespace(c) : c == ' ' || c == '\t';
 	}
 
 	private String toClassDesc(String s) {
@@ -215,15 +411,31 @@ public final class AccessWidenerReader {
 		}
 
 		String owner = toClassDesc(tokens.get(2));
+
+		if (!filter.acceptsOwner(owner, 0, owner.length())) {
+			return;
+		}
+
 		List<String> desc = toFieldDesc(tokens.subList(3, tokens.size()));
 		String fieldName = desc.get(0);
 		String descriptor = desc.get(1);
 
-		try {
-			visitor.visitField(owner, fieldName, descriptor, access, transitive);
-		} catch (Exception e) {
-			throw error(e.toString());
+		if (batch != null) {
+			batch.addField(owner, fieldName, descriptor, access, transitive);
+			batch.setLine(lineNumber);
+
+			if (batch.size() == BATCH_SIZE) {
+				flushBatch();
+			}
+		} else {
+			try {
+				visitor.visitField(owner, fieldName, descriptor, access, transitive);
+			} catch (Exception e) {
+				throw error(e.toString());
+			}
 		}
+
+		fieldEntries++;
 	}
 
 	private List<String> toFieldDesc(List<String> tokens) {
@@ -243,15 +455,31 @@ public final class AccessWidenerReader {
 		}
 
 		String owner = toClassDesc(tokens.get(2));
+
+		if (!filter.acceptsOwner(owner, 0, owner.length())) {
+			return;
+		}
+
 		List<String> desc = toMethodDesc(tokens.subList(3, tokens.size()));
 		String methodName = desc.get(0);
 		String descriptor = desc.get(1);
 
-		try {
-			visitor.visitMethod(owner, methodName, descriptor, access, transitive);
-		} catch (Exception e) {
-			throw error(e.toString());
+		if (batch != null) {
+			batch.addMethod(owner, methodName, descriptor, access, transitive);
+			batch.setLine(lineNumber);
+
+			if (batch.size() == BATCH_SIZE) {
+				flushBatch();
+			}
+		} else {
+			try {
+				visitor.visitMethod(owner, methodName, descriptor, access, transitive);
+			} catch (Exception e) {
+				throw error(e.toString());
+			}
 		}
+
+		methodEntries++;
 	}
 
 	private List<String> toMethodDesc(List<String> tokens) {
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the events it visits, so they can be replayed into other visitors later without parsing the access
+ * widener again.
+ *
+ * <p>Events are stored in columns: one byte of flags per event (kind, access type and transitive flag) and one
+ * int per name, which refers to a table of distinct strings. Recording isn't thread safe, but once it is finished,
+ * the events can be replayed by multiple threads at the same time.
+ */
+public final class AccessWidenerRecorder implements AccessWidenerVisitor {
+	private static final int HEADER = 0;
+	private static final int CLASS = 1;
+	private static final int METHOD = 2;
+	private static final int FIELD = 3;
+	private static final int KIND_MASK = 0b11;
+	private static final int ACCESS_SHIFT = 2;
+	private static final int ACCESS_MASK = 0b11;
+	private static final int TRANSITIVE = 1 << 4;
+	private static final AccessWidenerReader.AccessType[] ACCESS_TYPES = AccessWidenerReader.AccessType.values();
+	private static final int INITIAL_CAPACITY = 16;
+	// Maximum number of entries passed to a batch visitor at once
+	private static final int BATCH_SIZE = 256;
+
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private String[] strings = new String[INITIAL_CAPACITY];
+	private int stringCount;
+	private byte[] flags = new byte[INITIAL_CAPACITY];
+	// Namespace for headers, class name for classes, owner for members
+	private int[] owners = new int[INITIAL_CAPACITY];
+	private int[] names = new int[INITIAL_CAPACITY];
+	private int[] descriptors = new int[INITIAL_CAPACITY];
+	private int size;
+
+	@Override
+	public void visitHeader(String namespace) {
+		add(HEADER, namespace, null, null, null, false);
+	}
+
+	@Override
+	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(CLASS, name, null, null, access, transitive);
+	}
+
+	@Override
+	public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(METHOD, owner, name, descriptor, access, transitive);
+	}
+
+	@Override
+	public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		add(FIELD, owner, name, descriptor, access, transitive);
+	}
+
+	private void add(int kind, String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		if (size == flags.length) {
+			int capacity = size * 2;
+			flags = Arrays.copyOf(flags, capacity);
+			owners = Arrays.copyOf(owners, capacity);
+			names = Arrays.copyOf(names, capacity);
+			descriptors = Arrays.copyOf(descriptors, capacity);
+		}
+
+		int eventFlags = kind;
+
+		if (access != null) {
+			eventFlags |= access.ordinal() << ACCESS_SHIFT;
+		}
+
+		if (transitive) {
+			eventFlags |= TRANSITIVE;
+		}
+
+		flags[size] = (byte) eventFlags;
+		owners[size] = getStringId(owner);
+		names[size] = getStringId(name);
+		descriptors[size] = getStringId(descriptor);
+		size++;
+	}
+
+	private int getStringId(String string) {
+		if (string == null) {
+			return -1;
+		}
+
+		Integer id = stringIds.get(string);
+
+		if (id != null) {
+			return id;
+		}
+
+		if (stringCount == strings.length) {
+			strings = Arrays.copyOf(strings, stringCount * 2);
+		}
+
+		strings[stringCount] = string;
+		stringIds.put(string, stringCount);
+		return stringCount++;
+	}
+
+	/**
+	 * Replays all recorded events, in the order they were recorded, into the given visitor.
+	 * A {@link AccessWidenerBatchVisitor} receives the entries in batches.
+	 */
+	public void accept(AccessWidenerVisitor visitor) {
+		AccessWidenerBatch batch = visitor instanceof AccessWidenerBatchVisitor ? new AccessWidenerBatch(Math.min(size, BATCH_SIZE)) : null;
+
+		for (int i = 0; i < size; i++) {
+			int eventFlags = flags[i];
+			String owner = strings[owners[i]];
+			AccessWidenerReader.AccessType access = ACCESS_TYPES[eventFlags >> ACCESS_SHIFT & ACCESS_MASK];
+			boolean transitive = (eventFlags & TRANSITIVE) != 0;
+
+			switch (eventFlags & KIND_MASK) {
+			case HEADER:
+				// Entries must be visited after the header that precedes them
+				if (batch != null && !batch.isEmpty()) {
+					flushBatch(batch, visitor);
+				}
+
+				visitor.visitHeader(owner);
+				break;
+			case CLASS:
+				if (batch != null) {
+					batch.addClass(owner, access, transitive);
+				} else {
+					visitor.visitClass(owner, access, transitive);
+				}
+
+				break;
+			case METHOD:
+				if (batch != null) {
+					batch.addMethod(owner, strings[names[i]], strings[descriptors[i]], access, transitive);
+				} else {
+					visitor.visitMethod(owner, strings[names[i]], strings[descriptors[i]], access, transitive);
+				}
+
+				break;
+			case FIELD:
+				if (batch != null) {
+					batch.addField(owner, strings[names[i]], strings[descriptors[i]], access, transitive);
+				} else {
+					visitor.visitField(owner, strings[names[i]], strings[descriptors[i]], access, transitive);
+				}
+
+				break;
+			default:
+				throw new IllegalStateException("Unknown event kind: " + (eventFlags & KIND_MASK));
+			}
+
+			if (batch != null && batch.size() == BATCH_SIZE) {
+				flushBatch(batch, visitor);
+			}
+		}
+
+		if (batch != null && !batch.isEmpty()) {
+			flushBatch(batch, visitor);
+		}
+	}
+
+	private static void flushBatch(AccessWidenerBatch batch, AccessWidenerVisitor visitor) {
+		((AccessWidenerBatchVisitor) visitor).visitBatch(batch);
+		batch.clear();
+	}
+
+	/**
+	 * The number of recorded events, including headers.
+	 */
+	public int getEventCount() {
+		return size;
+	}
+
+	/**
+	 * The number of distinct names and namespaces in the recorded events.
+	 */
+	public int getStringCount() {
+		return stringCount;
+	}
+}
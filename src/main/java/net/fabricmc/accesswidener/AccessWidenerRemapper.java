@@ -22,15 +22,17 @@ import org.objectweb.asm.commons.Remapper;
  * Decorates a {@link AccessWidenerVisitor} with a {@link Remapper}
  * to remap names passing through the visitor if they come from a different namespace.
  */
-public final class AccessWidenerRemapper implements AccessWidenerVisitor {
+public final class AccessWidenerRemapper implements AccessWidenerBatchVisitor {
 	private final AccessWidenerVisitor delegate;
 	private final String fromNamespace;
 	private final String toNamespace;
-	private final Remapper remapper;
+	private final CachingRemapper remapper;
+	private final AccessWidenerBatch remappedBatch = new AccessWidenerBatch();
 
 	/**
 	 * @param delegate      The visitor to forward the remapped information to.
-	 * @param remapper      Will be used to remap names found in the access widener.
+	 * @param remapper      Will be used to remap names found in the access widener. Unless it already is a
+	 *                      {@link CachingRemapper}, its results are cached for the lifetime of this remapper.
 	 * @param fromNamespace The expected namespace of the access widener being remapped. Remapping fails if the
 	 *                      actual namespace is different.
 	 * @param toNamespace   The namespace that the access widener will be remapped to.
@@ -44,7 +46,14 @@ public final class AccessWidenerRemapper implements AccessWidenerVisitor {
 		this.delegate = delegate;
 		this.fromNamespace = fromNamespace;
 		this.toNamespace = toNamespace;
-		this.remapper = remapper;
+		this.remapper = remapper instanceof CachingRemapper ? (CachingRemapper) remapper : new CachingRemapper(remapper);
+	}
+
+	/**
+	 * The remapper that caches the names looked up by this remapper, for its statistics.
+	 */
+	public CachingRemapper getRemapper() {
+		return remapper;
 	}
 
 	@Override
@@ -57,6 +66,51 @@ public final class AccessWidenerRemapper implements AccessWidenerVisitor {
 		delegate.visitHeader(toNamespace);
 	}
 
+	@Override
+	public void visitBatch(AccessWidenerBatch batch) {
+		remappedBatch.clear();
+
+		for (int i = 0; i < batch.size(); i++) {
+			try {
+				String owner = batch.getOwner(i);
+
+				switch (batch.getKind(i)) {
+				case AccessWidenerBatch.CLASS:
+					remappedBatch.addClass(remapper.map(owner), batch.getAccess(i), batch.isTransitive(i));
+					break;
+				case AccessWidenerBatch.METHOD:
+					remappedBatch.addMethod(
+							remapper.map(owner),
+							remapper.mapMethodName(owner, batch.getName(i), batch.getDescriptor(i)),
+							remapper.mapDesc(batch.getDescriptor(i)),
+							batch.getAccess(i),
+							batch.isTransitive(i)
+					);
+					break;
+				case AccessWidenerBatch.FIELD:
+					remappedBatch.addField(
+							remapper.map(owner),
+							remapper.mapFieldName(owner, batch.getName(i), batch.getDescriptor(i)),
+							remapper.mapDesc(batch.getDescriptor(i)),
+							batch.getAccess(i),
+							batch.isTransitive(i)
+					);
+					break;
+				default:
+					throw new IllegalStateException("Unknown entry kind: " + batch.getKind(i));
+				}
+
+				remappedBatch.setLine(batch.getLine(i));
+			} catch (RuntimeException e) {
+				// The entries before the failing one are still visited, as without batching
+				remappedBatch.accept(delegate);
+				throw batch.entryError(i, e);
+			}
+		}
+
+		remappedBatch.accept(delegate);
+	}
+
 	@Override
 	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
 		delegate.visitClass(remapper.map(name), access, transitive);
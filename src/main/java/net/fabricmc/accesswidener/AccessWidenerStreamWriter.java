@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes an access widener directly to an {@link OutputStream} or {@link WritableByteChannel} while it is visited.
+ *
+ * <p>Unlike {@link AccessWidenerWriter}, the content is not kept in memory. Entries are encoded as UTF-8 into a
+ * fixed size buffer, which is written out whenever it is full, and when the writer is flushed or closed.
+ * I/O errors are thrown as {@link UncheckedIOException}, since the visitor methods can't throw checked exceptions.
+ *
+ * <p>{@link #visitHeader(String)} must be called before any entries are visited.
+ */
+public final class AccessWidenerStreamWriter implements AccessWidenerVisitor, Flushable, Closeable {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final OutputStream out;
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final int version;
+	private String namespace;
+
+	/**
+	 * Constructs a writer that writes an access widener in the given version to an output stream.
+	 * If features not supported by the version are used, an exception is thrown.
+	 */
+	public AccessWidenerStreamWriter(OutputStream out, int version) {
+		this.out = out;
+		this.channel = null;
+		this.version = version;
+	}
+
+	/**
+	 * Constructs a writer that writes an access widener in the latest version to an output stream.
+	 */
+	public AccessWidenerStreamWriter(OutputStream out) {
+		this(out, 2); // Latest version
+	}
+
+	/**
+	 * Constructs a writer that writes an access widener in the given version to a channel.
+	 * If features not supported by the version are used, an exception is thrown.
+	 */
+	public AccessWidenerStreamWriter(WritableByteChannel channel, int version) {
+		this.out = null;
+		this.channel = channel;
+		this.version = version;
+	}
+
+	/**
+	 * Constructs a writer that writes an access widener in the latest version to a channel.
+	 */
+	public AccessWidenerStreamWriter(WritableByteChannel channel) {
+		this(channel, 2); // Latest version
+	}
+
+	@Override
+	public void visitHeader(String namespace) {
+		if (this.namespace == null) {
+			append("accessWidener\tv");
+			append(Integer.toString(version));
+			append('\t');
+			append(namespace);
+			append('\n');
+		} else if (!this.namespace.equals(namespace)) {
+			throw new IllegalArgumentException("Cannot write different namespaces to the same file ("
+					+ this.namespace + " != " + namespace + ")");
+		}
+
+		this.namespace = namespace;
+	}
+
+	@Override
+	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		writeAccess(access, transitive);
+		append("\tclass\t");
+		append(name);
+		append('\n');
+	}
+
+	@Override
+	public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		writeAccess(access, transitive);
+		append("\tmethod\t");
+		writeMember(owner, name, descriptor);
+	}
+
+	@Override
+	public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		writeAccess(access, transitive);
+		append("\tfield\t");
+		writeMember(owner, name, descriptor);
+	}
+
+	private void writeAccess(AccessWidenerReader.AccessType access, boolean transitive) {
+		if (namespace == null) {
+			throw new IllegalStateException("No namespace set. visitHeader wasn't called.");
+		}
+
+		if (transitive) {
+			if (version < 2) {
+				throw new IllegalStateException("Cannot write transitive rule in version " + version);
+			}
+
+			append("transitive-");
+		}
+
+		append(access.toString());
+	}
+
+	private void writeMember(String owner, String name, String descriptor) {
+		append(owner);
+		append('\t');
+		append(name);
+		append('\t');
+		append(descriptor);
+		append('\n');
+	}
+
+	private void append(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+
+			if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				append(Character.toCodePoint(c, s.charAt(++i)));
+			} else {
+				// Unpaired surrogates can't be encoded, they are replaced like String.getBytes does
+				append(Character.isSurrogate(c) ? '?' : c);
+			}
+		}
+	}
+
+	private void append(int codePoint) {
+		if (buffer.remaining() < 4) {
+			flushBuffer();
+		}
+
+		if (codePoint < 0x80) {
+			buffer.put((byte) codePoint);
+		} else if (codePoint < 0x800) {
+			buffer.put((byte) (0xC0 | codePoint >> 6));
+			buffer.put((byte) (0x80 | codePoint & 0x3F));
+		} else if (codePoint < 0x10000) {
+			buffer.put((byte) (0xE0 | codePoint >> 12));
+			buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+			buffer.put((byte) (0x80 | codePoint & 0x3F));
+		} else {
+			buffer.put((byte) (0xF0 | codePoint >> 18));
+			buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+			buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+			buffer.put((byte) (0x80 | codePoint & 0x3F));
+		}
+	}
+
+	private void flushBuffer() {
+		try {
+			writeBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+
+		if (out != null) {
+			out.write(buffer.array(), 0, buffer.limit());
+		} else {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Writes all buffered content and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeBuffer();
+
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Writes all buffered content and closes the underlying stream or channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBuffer();
+		} finally {
+			if (out != null) {
+				out.close();
+			} else {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link ClassFileTransformer} that applies an {@link AccessWidener} to the classes it targets.
+ *
+ * <p>Classes that aren't targeted are rejected by name before they're parsed. Transformation happens on the thread
+ * that loads the class and doesn't take any locks, so it doesn't serialize parallel class loading.
+ *
+ * @see AccessWidenerAgent
+ */
+public final class AccessWidenerTransformer implements ClassFileTransformer {
+	private final AccessWidener accessWidener;
+	private final BiConsumer<String, RuntimeException> errorHandler;
+
+	/**
+	 * Constructs a transformer that rethrows errors, which the JVM ignores.
+	 */
+	public AccessWidenerTransformer(AccessWidener accessWidener) {
+		this(accessWidener, (className, e) -> {
+			throw e;
+		});
+	}
+
+	/**
+	 * @param errorHandler called with the internal name of a class that couldn't be transformed and the error, on the
+	 *                     thread that loads the class. The class is loaded unchanged unless the handler throws.
+	 */
+	public AccessWidenerTransformer(AccessWidener accessWidener, BiConsumer<String, RuntimeException> errorHandler) {
+		this.accessWidener = accessWidener;
+		this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+	}
+
+	@Override
+	public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+		// Hidden classes and lambda forms have no name, and can't be targeted anyway
+		if (className == null) {
+			return null;
+		}
+
+		if (!accessWidener.getTargets().contains(className.replace('/', '.'))) {
+			return null;
+		}
+
+		try {
+			byte[] transformed = accessWidener.transform(classfileBuffer);
+			return transformed == classfileBuffer ? null : transformed;
+		} catch (RuntimeException e) {
+			errorHandler.accept(className, e);
+			return null;
+		}
+	}
+
+	public AccessWidener getAccessWidener() {
+		return accessWidener;
+	}
+}
@@ -16,7 +16,7 @@
 
 package net.fabricmc.accesswidener;
 
-public final class AccessWidenerWriter implements AccessWidenerVisitor {
+public final class AccessWidenerWriter implements AccessWidenerBatchVisitor {
 	private final StringBuilder builder = new StringBuilder();
 	private final int version;
 	private String namespace;
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * A {@link Remapper} that remembers the class names, descriptors and member names returned by another remapper.
+ *
+ * <p>The same owners and descriptors occur many times in an access widener, and looking them up in mappings is
+ * comparatively expensive. The results are cached for the lifetime of this remapper, so it should only be shared
+ * while the mappings don't change. Other methods are forwarded without caching.
+ *
+ * <p>This class is safe to use from multiple threads if the wrapped remapper is.
+ */
+public final class CachingRemapper extends Remapper {
+	private final Remapper delegate;
+	private final Map<String, String> classNames = new ConcurrentHashMap<>();
+	private final Map<String, String> descriptors = new ConcurrentHashMap<>();
+	private final Map<EntryTriple, String> methodNames = new ConcurrentHashMap<>();
+	private final Map<EntryTriple, String> fieldNames = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public CachingRemapper(Remapper delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String map(String internalName) {
+		return lookup(classNames, internalName, delegate::map);
+	}
+
+	@Override
+	public String mapDesc(String descriptor) {
+		return lookup(descriptors, descriptor, delegate::mapDesc);
+	}
+
+	@Override
+	public String mapMethodName(String owner, String name, String descriptor) {
+		return lookup(methodNames, new EntryTriple(owner, name, descriptor), key -> delegate.mapMethodName(owner, name, descriptor));
+	}
+
+	@Override
+	public String mapFieldName(String owner, String name, String descriptor) {
+		return lookup(fieldNames, new EntryTriple(owner, name, descriptor), key -> delegate.mapFieldName(owner, name, descriptor));
+	}
+
+	@Override
+	public String mapMethodDesc(String methodDescriptor) {
+		return delegate.mapMethodDesc(methodDescriptor);
+	}
+
+	@Override
+	public String mapSignature(String signature, boolean typeSignature) {
+		return delegate.mapSignature(signature, typeSignature);
+	}
+
+	@Override
+	public String mapInnerClassName(String name, String ownerName, String innerName) {
+		return delegate.mapInnerClassName(name, ownerName, innerName);
+	}
+
+	@Override
+	public String mapInvokeDynamicMethodName(String name, String descriptor) {
+		return delegate.mapInvokeDynamicMethodName(name, descriptor);
+	}
+
+	@Override
+	public String mapRecordComponentName(String owner, String name, String descriptor) {
+		return delegate.mapRecordComponentName(owner, name, descriptor);
+	}
+
+	@Override
+	public String mapPackageName(String name) {
+		return delegate.mapPackageName(name);
+	}
+
+	@Override
+	public String mapModuleName(String name) {
+		return delegate.mapModuleName(name);
+	}
+
+	private <K> String lookup(Map<K, String> cache, K key, Function<K, String> mapper) {
+		String result = cache.get(key);
+
+		if (result != null) {
+			hits.increment();
+			return result;
+		}
+
+		misses.increment();
+		result = mapper.apply(key);
+
+		// Remappers may return null for unknown names, those are simply looked up again
+		if (result != null) {
+			cache.putIfAbsent(key, result);
+		}
+
+		return result;
+	}
+
+	public Remapper getDelegate() {
+		return delegate;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * The fraction of lookups that were served from the cache, or 0 if there were no lookups yet.
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+}
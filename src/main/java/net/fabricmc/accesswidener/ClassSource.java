@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A source of class files, such as a set of jars and directories.
+ *
+ * <p>Implementations must be safe to use from multiple threads.
+ */
+public interface ClassSource extends Closeable {
+	/**
+	 * Reads a class file.
+	 *
+	 * @param internalName the internal name of the class, such as {@code a/b/C}
+	 * @return the class file, or {@code null} if this source doesn't contain the class
+	 */
+	byte[] read(String internalName) throws IOException;
+
+	/**
+	 * Finds a resource file.
+	 *
+	 * @param name the path of the resource relative to the root, such as {@code a/b/c.txt}
+	 * @return the resource file, or {@code null} if this source doesn't contain it
+	 */
+	Path findResource(String name);
+
+	/**
+	 * Finds all resource files with the given name, for sources that can contain the same name more than once.
+	 * The default implementation returns the result of {@link #findResource(String)}.
+	 *
+	 * @param name the path of the resources relative to the root, such as {@code META-INF/services/a.b.C}
+	 * @return the resource files, in the same order as they are searched by {@link #findResource(String)}
+	 */
+	default List<Path> findResources(String name) {
+		Path path = findResource(name);
+		return path != null ? Collections.singletonList(path) : Collections.emptyList();
+	}
+
+	@Override
+	default void close() throws IOException {
+	}
+
+	/**
+	 * Creates a source that reads from the given jar files and directories, in order.
+	 * Jars are opened as zip file systems and stay open until the source is closed.
+	 */
+	static ClassSource of(Path... paths) throws IOException {
+		List<Path> roots = new ArrayList<>(paths.length);
+		List<FileSystem> fileSystems = new ArrayList<>();
+
+		try {
+			for (Path path : paths) {
+				if (Files.isDirectory(path)) {
+					roots.add(path);
+				} else {
+					FileSystem fileSystem = FileSystems.newFileSystem(path, (ClassLoader) null);
+					fileSystems.add(fileSystem);
+					roots.add(fileSystem.getRootDirectories().iterator().next());
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			for (FileSystem fileSystem : fileSystems) {
+				fileSystem.close();
+			}
+
+			throw e;
+		}
+
+		return new ClassSource() {
+			@Override
+			public byte[] read(String internalName) throws IOException {
+				String fileName = internalName + ".class";
+
+				for (Path root : roots) {
+					try {
+						return Files.readAllBytes(root.resolve(fileName));
+					} catch (NoSuchFileException e) {
+						// Try the next root
+					}
+				}
+
+				return null;
+			}
+
+			@Override
+			public Path findResource(String name) {
+				for (Path root : roots) {
+					Path path = root.resolve(name);
+
+					if (Files.isRegularFile(path)) {
+						return path;
+					}
+				}
+
+				return null;
+			}
+
+			@Override
+			public List<Path> findResources(String name) {
+				List<Path> paths = new ArrayList<>();
+
+				for (Path root : roots) {
+					Path path = root.resolve(name);
+
+					if (Files.isRegularFile(path)) {
+						paths.add(path);
+					}
+				}
+
+				return paths;
+			}
+
+			@Override
+			public void close() throws IOException {
+				IOException exception = null;
+
+				for (FileSystem fileSystem : fileSystems) {
+					try {
+						fileSystem.close();
+					} catch (IOException e) {
+						if (exception == null) {
+							exception = e;
+						} else {
+							exception.addSuppressed(e);
+						}
+					}
+				}
+
+				if (exception != null) {
+					throw exception;
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * A {@link Remapper} backed by sorted arrays instead of hash maps.
+ *
+ * <p>All names are stored once in a sorted string pool, and the class, method and field mappings are stored as
+ * sorted arrays of pool indices. Lookups use binary search and don't allocate. Since descriptors are remapped
+ * through {@link #map(String)}, this works for {@link #mapDesc(String)} as well.
+ *
+ * <p>Fields are matched by owner and name only, their descriptors are ignored. Instances are immutable and safe to
+ * use from multiple threads. They can be stored in a binary cache using {@link #write(DataOutput)} and
+ * {@link #read(DataInput)}, which is much faster than parsing the original mappings again.
+ */
+public final class CompactRemapper extends Remapper {
+	private static final int MAGIC = 0x41574352; // AWCR
+	private static final int FORMAT_VERSION = 1;
+	private static final int METHOD_STRIDE = 4; // owner, name, descriptor, new name
+	private static final int FIELD_STRIDE = 3; // owner, name, new name
+	private static final int CLASS_STRIDE = 2; // name, new name
+
+	private final String[] pool;
+	private final int[] classes;
+	private final int[] methods;
+	private final int[] fields;
+
+	private CompactRemapper(String[] pool, int[] classes, int[] methods, int[] fields) {
+		this.pool = pool;
+		this.classes = classes;
+		this.methods = methods;
+		this.fields = fields;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public String map(String internalName) {
+		int index = find(classes, CLASS_STRIDE, indexOf(internalName), -1, -1);
+		return index < 0 ? internalName : pool[classes[index + 1]];
+	}
+
+	@Override
+	public String mapMethodName(String owner, String name, String descriptor) {
+		int ownerIndex = indexOf(owner);
+		int nameIndex = indexOf(name);
+		int descriptorIndex = indexOf(descriptor);
+
+		if (ownerIndex < 0 || nameIndex < 0 || descriptorIndex < 0) {
+			return name;
+		}
+
+		int index = find(methods, METHOD_STRIDE, ownerIndex, nameIndex, descriptorIndex);
+		return index < 0 ? name : pool[methods[index + 3]];
+	}
+
+	@Override
+	public String mapFieldName(String owner, String name, String descriptor) {
+		int ownerIndex = indexOf(owner);
+		int nameIndex = indexOf(name);
+
+		if (ownerIndex < 0 || nameIndex < 0) {
+			return name;
+		}
+
+		int index = find(fields, FIELD_STRIDE, ownerIndex, nameIndex, -1);
+		return index < 0 ? name : pool[fields[index + 2]];
+	}
+
+	private int indexOf(String name) {
+		return name == null ? -1 : Arrays.binarySearch(pool, name);
+	}
+
+	/**
+	 * Finds the entry with the given key in an array of entries of {@code stride} ints, sorted by their first ints.
+	 * A key of -1 is not compared, and a negative first key is never found.
+	 *
+	 * @return the array index of the entry, or -1 if it isn't present
+	 */
+	private static int find(int[] entries, int stride, int key0, int key1, int key2) {
+		if (key0 < 0) {
+			return -1;
+		}
+
+		int low = 0;
+		int high = entries.length / stride - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int offset = mid * stride;
+			int cmp = Integer.compare(entries[offset], key0);
+
+			if (cmp == 0 && key1 >= 0) {
+				cmp = Integer.compare(entries[offset + 1], key1);
+
+				if (cmp == 0 && key2 >= 0) {
+					cmp = Integer.compare(entries[offset + 2], key2);
+				}
+			}
+
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return offset;
+			}
+		}
+
+		return -1;
+	}
+
+	public int getClassCount() {
+		return classes.length / CLASS_STRIDE;
+	}
+
+	public int getMethodCount() {
+		return methods.length / METHOD_STRIDE;
+	}
+
+	public int getFieldCount() {
+		return fields.length / FIELD_STRIDE;
+	}
+
+	/**
+	 * Writes the mappings in a binary format that can be loaded with {@link #read(DataInput)}.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(pool.length);
+
+		for (String name : pool) {
+			out.writeUTF(name);
+		}
+
+		writeInts(out, classes);
+		writeInts(out, methods);
+		writeInts(out, fields);
+	}
+
+	private static void writeInts(DataOutput out, int[] values) throws IOException {
+		out.writeInt(values.length);
+
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Reads mappings written by {@link #write(DataOutput)}.
+	 *
+	 * @throws IOException if the data isn't in the expected format, for example because it was written by a
+	 *                     different version of this class
+	 */
+	public static CompactRemapper read(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a compact remapper cache");
+		}
+
+		int version = in.readInt();
+
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported compact remapper cache version " + version);
+		}
+
+		String[] pool = new String[in.readInt()];
+
+		for (int i = 0; i < pool.length; i++) {
+			pool[i] = in.readUTF();
+		}
+
+		int[] classes = readInts(in, CLASS_STRIDE, pool.length);
+		int[] methods = readInts(in, METHOD_STRIDE, pool.length);
+		int[] fields = readInts(in, FIELD_STRIDE, pool.length);
+		return new CompactRemapper(pool, classes, methods, fields);
+	}
+
+	private static int[] readInts(DataInput in, int stride, int poolSize) throws IOException {
+		int length = in.readInt();
+
+		if (length < 0 || length % stride != 0) {
+			throw new IOException("Invalid table length " + length + " in compact remapper cache");
+		}
+
+		int[] values = new int[length];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+
+			if (values[i] < 0 || values[i] >= poolSize) {
+				throw new IOException("Invalid name index " + values[i] + " in compact remapper cache");
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Collects mappings for a {@link CompactRemapper}. If a name is mapped more than once, the last mapping wins.
+	 */
+	public static final class Builder {
+		private final Map<String, String> classes = new HashMap<>();
+		private final Map<EntryTriple, String> methods = new HashMap<>();
+		private final Map<EntryTriple, String> fields = new HashMap<>();
+
+		private Builder() {
+		}
+
+		public Builder addClass(String name, String newName) {
+			classes.put(name, newName);
+			return this;
+		}
+
+		public Builder addMethod(String owner, String name, String descriptor, String newName) {
+			methods.put(new EntryTriple(owner, name, descriptor), newName);
+			return this;
+		}
+
+		public Builder addField(String owner, String name, String newName) {
+			fields.put(new EntryTriple(owner, name, ""), newName);
+			return this;
+		}
+
+		public CompactRemapper build() {
+			TreeSet<String> names = new TreeSet<>();
+
+			classes.forEach((name, newName) -> {
+				names.add(name);
+				names.add(newName);
+			});
+			methods.forEach((method, newName) -> {
+				names.add(method.getOwner());
+				names.add(method.getName());
+				names.add(method.getDesc());
+				names.add(newName);
+			});
+			fields.forEach((field, newName) -> {
+				names.add(field.getOwner());
+				names.add(field.getName());
+				names.add(newName);
+			});
+
+			String[] pool = names.toArray(new String[0]);
+			List<int[]> classEntries = new ArrayList<>(classes.size());
+			List<int[]> methodEntries = new ArrayList<>(methods.size());
+			List<int[]> fieldEntries = new ArrayList<>(fields.size());
+
+			classes.forEach((name, newName) -> classEntries.add(new int[] {
+					Arrays.binarySearch(pool, name),
+					Arrays.binarySearch(pool, newName)
+			}));
+			methods.forEach((method, newName) -> methodEntries.add(new int[] {
+					Arrays.binarySearch(pool, method.getOwner()),
+					Arrays.binarySearch(pool, method.getName()),
+					Arrays.binarySearch(pool, method.getDesc()),
+					Arrays.binarySearch(pool, newName)
+			}));
+			fields.forEach((field, newName) -> fieldEntries.add(new int[] {
+					Arrays.binarySearch(pool, field.getOwner()),
+					Arrays.binarySearch(pool, field.getName()),
+					Arrays.binarySearch(pool, newName)
+			}));
+
+			return new CompactRemapper(pool, flatten(classEntries, CLASS_STRIDE), flatten(methodEntries, METHOD_STRIDE), flatten(fieldEntries, FIELD_STRIDE));
+		}
+
+		private static int[] flatten(List<int[]> entries, int stride) {
+			// Pool indices are in the same order as the names, and the keys are unique, so comparing the keys
+			// (all but the last int) is enough
+			entries.sort((a, b) -> Arrays.compare(a, 0, stride - 1, b, 0, stride - 1));
+			int[] result = new int[entries.size() * stride];
+
+			for (int i = 0; i < entries.size(); i++) {
+				System.arraycopy(entries.get(i), 0, result, i * stride, stride);
+			}
+
+			return result;
+		}
+	}
+}
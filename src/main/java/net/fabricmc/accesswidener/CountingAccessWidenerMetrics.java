@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics that sum up all measurements using lock-free counters, to be exported to a monitoring system.
+ */
+public class CountingAccessWidenerMetrics implements AccessWidenerMetrics {
+	private final LongAdder lines = new LongAdder();
+	private final LongAdder classEntries = new LongAdder();
+	private final LongAdder methodEntries = new LongAdder();
+	private final LongAdder fieldEntries = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LatencyHistogram parseTimes = new LatencyHistogram();
+	private final LongAdder membersModified = new LongAdder();
+	private final LongAdder callsRewritten = new LongAdder();
+	private final LatencyHistogram transformTimes = new LatencyHistogram();
+
+	@Override
+	public void fileRead(int lines, int classEntries, int methodEntries, int fieldEntries, long bytes, long nanos) {
+		this.lines.add(lines);
+		this.classEntries.add(classEntries);
+		this.methodEntries.add(methodEntries);
+		this.fieldEntries.add(fieldEntries);
+		this.bytes.add(bytes);
+		parseTimes.record(nanos);
+	}
+
+	@Override
+	public void classTransformed(String className, int membersModified, int callsRewritten, long nanos) {
+		this.membersModified.add(membersModified);
+		this.callsRewritten.add(callsRewritten);
+		transformTimes.record(nanos);
+	}
+
+	public long getFilesRead() {
+		return parseTimes.getCount();
+	}
+
+	public long getLines() {
+		return lines.sum();
+	}
+
+	public long getClassEntries() {
+		return classEntries.sum();
+	}
+
+	public long getMethodEntries() {
+		return methodEntries.sum();
+	}
+
+	public long getFieldEntries() {
+		return fieldEntries.sum();
+	}
+
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	/**
+	 * The time taken to read each access widener file.
+	 */
+	public LatencyHistogram getParseTimes() {
+		return parseTimes;
+	}
+
+	public long getClassesTransformed() {
+		return transformTimes.getCount();
+	}
+
+	public long getMembersModified() {
+		return membersModified.sum();
+	}
+
+	public long getCallsRewritten() {
+		return callsRewritten.sum();
+	}
+
+	/**
+	 * The time taken to transform each class.
+	 */
+	public LatencyHistogram getTransformTimes() {
+		return transformTimes;
+	}
+}
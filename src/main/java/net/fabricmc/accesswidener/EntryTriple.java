@@ -16,7 +16,7 @@
 
 package net.fabricmc.accesswidener;
 
-final class EntryTriple {
+final class EntryTriple implements Comparable<EntryTriple> {
 	private final String owner;
 	private final String name;
 	private final String desc;
@@ -57,4 +57,19 @@ final class EntryTriple {
 	public int hashCode() {
 		return this.owner.hashCode() * 37 + this.name.hashCode() * 19 + this.desc.hashCode();
 	}
+
+	@Override
+	public int compareTo(EntryTriple o) {
+		int result = this.owner.compareTo(o.owner);
+
+		if (result == 0) {
+			result = this.name.compareTo(o.name);
+		}
+
+		if (result == 0) {
+			result = this.desc.compareTo(o.desc);
+		}
+
+		return result;
+	}
 }
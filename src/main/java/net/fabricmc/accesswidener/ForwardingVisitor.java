@@ -18,8 +18,12 @@ package net.fabricmc.accesswidener;
 
 /**
  * Forwards visitor events to multiple other visitors.
+ *
+ * <p>Batches are handed to each visitor in turn, so the first visitor sees all entries of a batch before the next
+ * one sees any. Subclasses receive batches one entry at a time through {@link #visitClass}, {@link #visitMethod} and
+ * {@link #visitField}, so that their overrides are called in the same order as without batching.
  */
-public class ForwardingVisitor implements AccessWidenerVisitor {
+public class ForwardingVisitor implements AccessWidenerBatchVisitor {
 	private final AccessWidenerVisitor[] visitors;
 
 	public ForwardingVisitor(AccessWidenerVisitor... visitors) {
@@ -33,6 +37,18 @@ public class ForwardingVisitor implements AccessWidenerVisitor {
 		}
 	}
 
+	@Override
+	public void visitBatch(AccessWidenerBatch batch) {
+		if (getClass() != ForwardingVisitor.class) {
+			batch.acceptEntries(this);
+			return;
+		}
+
+		for (AccessWidenerVisitor visitor : visitors) {
+			batch.accept(visitor);
+		}
+	}
+
 	@Override
 	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
 		for (AccessWidenerVisitor visitor : visitors) {
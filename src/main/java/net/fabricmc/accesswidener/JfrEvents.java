@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events emitted while reading access wideners and transforming classes.
+ *
+ * <p>The event classes must only be instantiated if {@link #AVAILABLE} is true, since the {@code jdk.jfr} module
+ * may be missing from the runtime. When no recording is running, creating and ending an event is nearly free.
+ */
+final class JfrEvents {
+	static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+	private static final String CATEGORY = "Access Widener";
+
+	private JfrEvents() {
+	}
+
+	@Name("net.fabricmc.accesswidener.Read")
+	@Label("Access Widener Read")
+	@Description("Reading of an access widener file")
+	@Category(CATEGORY)
+	static final class ReadEvent extends Event {
+		@Label("Namespace")
+		String namespace;
+
+		@Label("Format Version")
+		int version;
+
+		@Label("Entries")
+		int entries;
+
+		@Label("Lines")
+		int lines;
+
+		@Label("Size")
+		@DataAmount
+		long size;
+	}
+
+	@Name("net.fabricmc.accesswidener.Transform")
+	@Label("Access Widener Transform")
+	@Description("Application of access widener rules to a class")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class TransformEvent extends Event {
+		@Label("Class Name")
+		String className;
+
+		@Label("Rules Applied")
+		@Description("Number of classes, inner classes, fields and methods whose access was changed")
+		int rulesApplied;
+
+		@Label("Calls Rewritten")
+		int callsRewritten;
+	}
+}
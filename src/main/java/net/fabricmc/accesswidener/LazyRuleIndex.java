@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the lines of an access widener file by owner, to parse the rules of an owner only when they are needed.
+ *
+ * <p>Building the index only scans the first three tokens of each line. The rules of an owner are parsed by
+ * {@link AccessWidenerReader} from a copy of the header and the owner's lines, the first time they are requested,
+ * and cached in a separate {@link AccessWidener}. Errors are reported with the line number in the original file.
+ *
+ * @see AccessWidener#readLazily(byte[], String)
+ */
+final class LazyRuleIndex {
+	private final byte[] content;
+	// End of the header line, excluding the line break
+	private final int headerEnd;
+	private final Map<String, LineRanges> lines;
+	private final Map<String, AccessWidener> parsed = new ConcurrentHashMap<>();
+	// Returned for owners without rules
+	private final AccessWidener empty = new AccessWidener();
+
+	private LazyRuleIndex(byte[] content, int headerEnd, Map<String, LineRanges> lines) {
+		this.content = content;
+		this.headerEnd = headerEnd;
+		this.lines = lines;
+	}
+
+	/**
+	 * Builds the index of a file with a valid header.
+	 *
+	 * @return the index, or {@code null} if the file contains lines that have to be parsed to find their owner,
+	 *         such as owners written as Java type names, or lines that the reader would reject
+	 */
+	static LazyRuleIndex create(byte[] content, int version) {
+		int headerEnd = indexOf(content, (byte) '\n', 0);
+		Map<String, LineRanges> lines = new HashMap<>();
+		int lineNumber = 1;
+
+		for (int start = headerEnd + 1; start < content.length; ) {
+			lineNumber++;
+			int lineBreak = indexOf(content, (byte) '\n', start);
+			int end = lineBreak > start && content[lineBreak - 1] == '\r' ? lineBreak - 1 : lineBreak;
+			int commentStart = indexOf(content, (byte) '#', start);
+			int tokensEnd = Math.min(end, commentStart);
+
+			// The reader also treats a lone carriage return as a line break
+			if (indexOf(content, (byte) '\r', start) < end) {
+				return null;
+			}
+
+			if (tokensEnd > start) {
+				// Leading whitespace is either an error or only tolerated by the full parser
+				if (content[start] < 0 || Character.isWhitespace(content[start])) {
+					return null;
+				}
+
+				int kindStart = skipDelimiters(content, skipToken(content, start, tokensEnd, version), tokensEnd, version);
+				int kindEnd = skipToken(content, kindStart, tokensEnd, version);
+				int ownerStart = skipDelimiters(content, kindEnd, tokensEnd, version);
+				int ownerEnd = skipToken(content, ownerStart, tokensEnd, version);
+
+				if (!isKind(content, kindStart, kindEnd) || !isInternalName(content, ownerStart, ownerEnd)) {
+					return null;
+				}
+
+				String owner = new String(content, ownerStart, ownerEnd - ownerStart, AccessWidenerReader.ENCODING);
+				lines.computeIfAbsent(owner, key -> new LineRanges()).add(start, end, lineNumber);
+			}
+
+			start = lineBreak + 1;
+		}
+
+		// Keep a copy, since the caller may reuse the array before all rules are parsed
+		return new LazyRuleIndex(content.clone(), headerEnd, lines);
+	}
+
+	/**
+	 * Reads all lines of the file at once.
+	 */
+	void readAll(AccessWidenerVisitor visitor) {
+		new AccessWidenerReader(visitor).read(content);
+	}
+
+	private static int indexOf(byte[] content, byte b, int start) {
+		for (int i = start; i < content.length; i++) {
+			if (content[i] == b || content[i] == '\n') {
+				return i;
+			}
+		}
+
+		return content.length;
+	}
+
+	private static boolean isDelimiter(byte b, int version) {
+		// Matches the delimiter patterns of AccessWidenerReader. All of them are ASCII, so they can be matched in the
+		// UTF-8 bytes directly.
+		return b == ' ' || b == '\t' || version < 2 && (b == '\n' || b == 0x0B || b == '\f' || b == '\r');
+	}
+
+	private static int skipToken(byte[] content, int index, int end, int version) {
+		while (index < end && !isDelimiter(content[index], version)) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static int skipDelimiters(byte[] content, int index, int end, int version) {
+		while (index < end && isDelimiter(content[index], version)) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static boolean isKind(byte[] content, int start, int end) {
+		String kind = new String(content, start, end - start, AccessWidenerReader.ENCODING);
+		return kind.equals("class") || kind.equals("method") || kind.equals("field");
+	}
+
+	private static boolean isInternalName(byte[] content, int start, int end) {
+		// Other names are translated by the reader
+		for (int i = start; i < end; i++) {
+			if (content[i] == '/') {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	Set<String> getOwners() {
+		return lines.keySet();
+	}
+
+	/**
+	 * Returns the rules of the given owner, parsing them if they haven't been requested before.
+	 */
+	AccessWidener getRules(String owner) {
+		if (!lines.containsKey(owner)) {
+			return empty;
+		}
+
+		return parsed.computeIfAbsent(owner, this::parse);
+	}
+
+	int getParsedCount() {
+		return parsed.size();
+	}
+
+	private AccessWidener parse(String owner) {
+		LineRanges ranges = lines.get(owner);
+		int size = headerEnd + 1;
+
+		for (int i = 0; i < ranges.size; i += LineRanges.STRIDE) {
+			size += ranges.values[i + 1] - ranges.values[i] + 1;
+		}
+
+		byte[] ownerContent = new byte[size];
+		System.arraycopy(content, 0, ownerContent, 0, headerEnd);
+		ownerContent[headerEnd] = '\n';
+		int position = headerEnd + 1;
+
+		for (int i = 0; i < ranges.size; i += LineRanges.STRIDE) {
+			int length = ranges.values[i + 1] - ranges.values[i];
+			System.arraycopy(content, ranges.values[i], ownerContent, position, length);
+			position += length;
+			ownerContent[position++] = '\n';
+		}
+
+		AccessWidener rules = new AccessWidener();
+
+		try {
+			new AccessWidenerReader(rules).read(ownerContent);
+		} catch (AccessWidenerFormatException e) {
+			throw withOriginalLineNumber(e, ranges);
+		}
+
+		return rules;
+	}
+
+	private static AccessWidenerFormatException withOriginalLineNumber(AccessWidenerFormatException e, LineRanges ranges) {
+		// The copy starts with the header, followed by the owner's lines in their original order
+		int index = (e.getLineNumber() - 2) * LineRanges.STRIDE;
+
+		if (index < 0 || index >= ranges.size) {
+			return e;
+		}
+
+		AccessWidenerFormatException rethrown = new AccessWidenerFormatException(ranges.values[index + 2], e.getMessage());
+		rethrown.initCause(e.getCause());
+		return rethrown;
+	}
+
+	/**
+	 * Start and end offsets and line numbers of the lines of one owner.
+	 */
+	private static final class LineRanges {
+		static final int STRIDE = 3;
+
+		private int[] values = new int[STRIDE];
+		private int size;
+
+		void add(int start, int end, int lineNumber) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+
+			values[size++] = start;
+			values[size++] = end;
+			values[size++] = lineNumber;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records which entries of an {@link AccessWidener} matched a class or member while transforming classes, to find
+ * entries that never match anything.
+ *
+ * <p>The tracker keeps its own copy of the rules, where every rule holds its access together with the index of its
+ * bit in a bitset. While tracking, {@link AccessWidenerClassVisitor} looks rules up here instead of in the access
+ * widener, so marking a matched rule as used costs at most one atomic bitwise or on top of the lookup. The rules of
+ * a class are found once per class, and its members are then found by name.
+ *
+ * <p>Only entries visited after tracking started are reported, as they were visited. Entries that were merged into
+ * the same rule, such as an {@code accessible} and an {@code extendable} entry of the same method, match together.
+ * Class rules that are only implied by member entries have no entry of their own and are never reported.
+ *
+ * @see AccessWidener#trackRuleUsage()
+ */
+public final class RuleUsageTracker {
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final Map<String, OwnerRules> owners = new HashMap<>();
+	// Rules with at least one visited entry, by index
+	private final List<Rule> trackedRules = new ArrayList<>();
+	private int entryCount;
+	// Replaced when it has to grow, which only happens while entries are visited
+	private volatile long[] words = new long[0];
+
+	RuleUsageTracker() {
+	}
+
+	Rule classRule(String name, AccessWidener.Access access) {
+		OwnerRules rules = getOrCreateOwnerRules(name);
+
+		if (rules.classRule == null) {
+			rules.classRule = new Rule(null);
+		}
+
+		rules.classRule.access = access;
+		return rules.classRule;
+	}
+
+	Rule methodRule(EntryTriple method, AccessWidener.Access access) {
+		return memberRule(getOrCreateOwnerRules(method.getOwner()).methods, method, access);
+	}
+
+	Rule fieldRule(EntryTriple field, AccessWidener.Access access) {
+		return memberRule(getOrCreateOwnerRules(field.getOwner()).fields, field, access);
+	}
+
+	private OwnerRules getOrCreateOwnerRules(String owner) {
+		return owners.computeIfAbsent(owner, key -> new OwnerRules());
+	}
+
+	private static Rule memberRule(Map<String, Rule> rules, EntryTriple member, AccessWidener.Access access) {
+		Rule rule = findRule(rules, member.getName(), member.getDesc());
+
+		if (rule == null) {
+			// Members with the same name are chained, overloads are rare enough to search them linearly
+			rule = new Rule(member.getDesc());
+			rule.next = rules.put(member.getName(), rule);
+		}
+
+		rule.access = access;
+		return rule;
+	}
+
+	private static Rule findRule(Map<String, Rule> rules, String name, String descriptor) {
+		for (Rule rule = rules.get(name); rule != null; rule = rule.next) {
+			if (rule.descriptor.equals(descriptor)) {
+				return rule;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds a visited entry to a rule, assigning the rule a bit if it doesn't have one yet.
+	 */
+	void addEntry(Rule rule, AccessWidenerReader.AccessType access, boolean transitive, String kind, String... names) {
+		if (rule.entries.isEmpty()) {
+			rule.index = trackedRules.size();
+			trackedRules.add(rule);
+
+			if (rule.index >>> 6 >= words.length) {
+				words = Arrays.copyOf(words, Math.max(words.length * 2, 1));
+			}
+		}
+
+		StringBuilder entry = new StringBuilder();
+
+		if (transitive) {
+			entry.append("transitive-");
+		}
+
+		entry.append(access).append(' ').append(kind);
+
+		for (String name : names) {
+			entry.append(' ').append(name);
+		}
+
+		rule.entries.add(entry.toString());
+		entryCount++;
+	}
+
+	/**
+	 * Returns the access of a class, and marks its rule as used.
+	 */
+	AccessWidener.Access getClassAccess(String name) {
+		OwnerRules rules = owners.get(name);
+		return rules != null ? rules.getClassAccess() : AccessWidener.ClassAccess.DEFAULT;
+	}
+
+	/**
+	 * Returns the rules of the members of a class, or {@code null} if there are none.
+	 */
+	OwnerRules getOwnerRules(String owner) {
+		return owners.get(owner);
+	}
+
+	private AccessWidener.Access use(Rule rule, AccessWidener.Access defaultAccess) {
+		if (rule == null) {
+			return defaultAccess;
+		}
+
+		int index = rule.index;
+
+		// Rules without an entry of their own have no bit
+		if (index >= 0) {
+			long[] words = this.words;
+			int word = index >>> 6;
+			long bit = 1L << index;
+
+			// Avoid the atomic write, and contention on the cache line, when the rule has already been seen
+			if (((long) WORDS.getOpaque(words, word) & bit) == 0) {
+				WORDS.getAndBitwiseOr(words, word, bit);
+			}
+		}
+
+		return rule.access;
+	}
+
+	/**
+	 * Returns the number of tracked entries.
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Returns every tracked entry whose rule hasn't matched any class or member so far, in the order they were visited
+	 * in, such as {@code transitive-accessible method a/B c ()V}. Entries of the same rule are listed together.
+	 */
+	public List<String> getUnusedEntries() {
+		List<String> unused = new ArrayList<>();
+		long[] words = this.words;
+
+		for (int i = 0; i < trackedRules.size(); i++) {
+			if (((long) WORDS.getVolatile(words, i >>> 6) & (1L << i)) == 0) {
+				unused.addAll(trackedRules.get(i).entries);
+			}
+		}
+
+		return unused;
+	}
+
+	/**
+	 * Prints the entries that never matched to {@code out} when the JVM shuts down.
+	 */
+	public void printUnusedEntriesOnShutdown(PrintStream out) {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			List<String> unused = getUnusedEntries();
+			out.println(unused.size() + " of " + getEntryCount() + " access widener entries never matched:");
+
+			for (String entry : unused) {
+				out.println("\t" + entry);
+			}
+
+			out.flush();
+		}, "AccessWidener rule usage report"));
+	}
+
+	/**
+	 * The tracked rules of a single class and its members.
+	 */
+	final class OwnerRules {
+		private Rule classRule;
+		private final Map<String, Rule> methods = new HashMap<>();
+		private final Map<String, Rule> fields = new HashMap<>();
+
+		AccessWidener.Access getClassAccess() {
+			return use(classRule, AccessWidener.ClassAccess.DEFAULT);
+		}
+
+		AccessWidener.Access getMethodAccess(String name, String descriptor) {
+			return use(findRule(methods, name, descriptor), AccessWidener.MethodAccess.DEFAULT);
+		}
+
+		AccessWidener.Access getFieldAccess(String name, String descriptor) {
+			return use(findRule(fields, name, descriptor), AccessWidener.FieldAccess.DEFAULT);
+		}
+	}
+
+	static final class Rule {
+		// Null for class rules
+		final String descriptor;
+		AccessWidener.Access access;
+		int index = -1;
+		final List<String> entries = new ArrayList<>(1);
+		Rule next;
+
+		Rule(String descriptor) {
+			this.descriptor = descriptor;
+		}
+	}
+}
@@ -19,8 +19,9 @@ package net.fabricmc.accesswidener;
 /**
  * Decorates a visitor to only receive elements that are marked as transitive.
  */
-public final class TransitiveOnlyFilter implements AccessWidenerVisitor {
+public final class TransitiveOnlyFilter implements AccessWidenerBatchVisitor {
 	private final AccessWidenerVisitor delegate;
+	private final AccessWidenerBatch filteredBatch = new AccessWidenerBatch();
 
 	public TransitiveOnlyFilter(AccessWidenerVisitor delegate) {
 		this.delegate = delegate;
@@ -31,6 +32,21 @@ public final class TransitiveOnlyFilter implements AccessWidenerVisitor {
 		delegate.visitHeader(namespace);
 	}
 
+	@Override
+	public void visitBatch(AccessWidenerBatch batch) {
+		filteredBatch.clear();
+
+		for (int i = 0; i < batch.size(); i++) {
+			if (batch.isTransitive(i)) {
+				filteredBatch.add(batch, i);
+			}
+		}
+
+		if (!filteredBatch.isEmpty()) {
+			filteredBatch.accept(delegate);
+		}
+	}
+
 	@Override
 	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
 		if (transitive) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Compares the precomputed masks with the operators they replaced, for every combination of access flags.
+ */
+class AccessMasksTest {
+	private static final String[] NAMES = {"<init>", "<clinit>", "method"};
+	private static final int[] OWNER_ACCESS = {
+			0,
+			Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+			Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT
+	};
+
+	@Test
+	void testClassAccess() {
+		assertSameAsReference(Map.of(
+				AccessWidener.ClassAccess.DEFAULT, (access, name, ownerAccess) -> access,
+				AccessWidener.ClassAccess.ACCESSIBLE, (access, name, ownerAccess) -> makePublic(access),
+				AccessWidener.ClassAccess.EXTENDABLE, (access, name, ownerAccess) -> makePublic(removeFinal(access)),
+				AccessWidener.ClassAccess.ACCESSIBLE_EXTENDABLE, (access, name, ownerAccess) -> makePublic(removeFinal(access))
+		));
+	}
+
+	@Test
+	void testMethodAccess() {
+		assertSameAsReference(Map.of(
+				AccessWidener.MethodAccess.DEFAULT, (access, name, ownerAccess) -> access,
+				AccessWidener.MethodAccess.ACCESSIBLE, (access, name, ownerAccess) -> makePublic(makeFinalIfPrivate(access, name, ownerAccess)),
+				AccessWidener.MethodAccess.EXTENDABLE, (access, name, ownerAccess) -> makeProtected(removeFinal(access)),
+				AccessWidener.MethodAccess.ACCESSIBLE_EXTENDABLE, (access, name, ownerAccess) -> makePublic(removeFinal(access))
+		));
+	}
+
+	@Test
+	void testFieldAccess() {
+		assertSameAsReference(Map.of(
+				AccessWidener.FieldAccess.DEFAULT, (access, name, ownerAccess) -> access,
+				AccessWidener.FieldAccess.ACCESSIBLE, (access, name, ownerAccess) -> makePublic(access),
+				AccessWidener.FieldAccess.MUTABLE, (access, name, ownerAccess) -> {
+					if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0 && (access & Opcodes.ACC_STATIC) != 0) {
+						return access;
+					}
+
+					return removeFinal(access);
+				},
+				AccessWidener.FieldAccess.ACCESSIBLE_MUTABLE, (access, name, ownerAccess) -> {
+					if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0 && (access & Opcodes.ACC_STATIC) != 0) {
+						return makePublic(access);
+					}
+
+					return makePublic(removeFinal(access));
+				}
+		));
+	}
+
+	private static void assertSameAsReference(Map<AccessWidener.Access, AccessWidener.AccessOperator> references) {
+		references.forEach((access, reference) -> {
+			for (String name : NAMES) {
+				for (int ownerAccess : OWNER_ACCESS) {
+					for (int flags = 0; flags <= 0xFFFF; flags++) {
+						int expected = reference.apply(flags, name, ownerAccess);
+						int actual = access.apply(flags, name, ownerAccess);
+
+						if (expected != actual) {
+							assertEquals(expected, actual, access + " " + name + " " + ownerAccess + " " + flags);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	// Copies of the operators before the masks were introduced
+
+	private static int makePublic(int i) {
+		return (i & ~(Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_PUBLIC;
+	}
+
+	private static int makeProtected(int i) {
+		if ((i & Opcodes.ACC_PUBLIC) != 0) {
+			return i;
+		}
+
+		return (i & ~(Opcodes.ACC_PRIVATE)) | Opcodes.ACC_PROTECTED;
+	}
+
+	private static int makeFinalIfPrivate(int access, String name, int ownerAccess) {
+		if (name.equals("<init>")) {
+			return access;
+		}
+
+		if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0 || (access & Opcodes.ACC_STATIC) != 0) {
+			return access;
+		}
+
+		if ((access & Opcodes.ACC_PRIVATE) != 0) {
+			return access | Opcodes.ACC_FINAL;
+		}
+
+		return access;
+	}
+
+	private static int removeFinal(int i) {
+		return i & ~Opcodes.ACC_FINAL;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+class AccessWidenerBatchRemapperTest {
+	@Test
+	void testRemapsInInputOrderAndCollectsErrors() {
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class", "newa/NewClass");
+		mappings.put("a/Class.someMethod()I", "otherMethod");
+		AccessWidenerBatchRemapper batchRemapper = new AccessWidenerBatchRemapper(new SimpleRemapper(mappings), "named", "intermediary");
+		List<byte[]> inputs = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++) {
+			inputs.add(bytes("accessWidener\tv1\tnamed\naccessible\tmethod\ta/Class\tsomeMethod\t()I\n"));
+		}
+
+		inputs.set(3, bytes("accessWidener\tv1\tother\n"));
+		inputs.set(7, bytes("accessWidener\tv2\tnamed\ntransitive-extendable\tclass\ta/Class\n"));
+
+		List<AccessWidenerBatchRemapper.Result> results = batchRemapper.remap(inputs);
+
+		assertThat(results).hasSize(20);
+		assertThat(results.get(3).isSuccess()).isFalse();
+		assertThat(results.get(3).getOutput()).isNull();
+		assertThat(results.get(3).getError()).hasMessageContaining("Cannot remap access widener from namespace 'other'");
+		// The version of each file is kept
+		assertEquals("accessWidener\tv2\tintermediary\ntransitive-extendable\tclass\tnewa/NewClass\n", string(results.get(7).getOutput()));
+
+		for (int i = 0; i < 20; i++) {
+			if (i != 3 && i != 7) {
+				assertEquals("accessWidener\tv1\tintermediary\naccessible\tmethod\tnewa/NewClass\totherMethod\t()I\n", string(results.get(i).getOutput()));
+			}
+		}
+
+		assertThat(batchRemapper.getRemapper().getHits()).isPositive();
+	}
+
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(byte[] content) {
+		return new String(content, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+class AccessWidenerBatchTest {
+	@Test
+	void testReaderPassesBatches() {
+		StringBuilder content = new StringBuilder("accessWidener\tv2\tnamed\n");
+
+		for (int i = 0; i < 600; i++) {
+			content.append(i % 3 == 0 ? "transitive-accessible" : "accessible").append("\tfield\ta/Class\tfield").append(i).append("\tI\n");
+		}
+
+		byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+		BatchCounter counter = new BatchCounter();
+
+		new AccessWidenerReader(counter).read(bytes);
+
+		assertThat(counter.batchSizes).containsExactly(256, 256, 88);
+		assertEquals(content.toString(), counter.writer.writeString());
+	}
+
+	@Test
+	void testChainGivesSameResultAsSingleEntries() {
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class", "newa/NewClass");
+		mappings.put("a/Class.method(La/Class;)V", "newMethod");
+		mappings.put("a/Class.field", "newField");
+		mappings.put("b/Class", "newb/Class");
+		AccessWidenerBatch batch = new AccessWidenerBatch(1);
+		batch.addClass("a/Class", AccessWidenerReader.AccessType.EXTENDABLE, true);
+		batch.addMethod("a/Class", "method", "(La/Class;)V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		batch.addField("a/Class", "field", "La/Class;", AccessWidenerReader.AccessType.MUTABLE, true);
+		batch.addField("b/Class", "field", "I", AccessWidenerReader.AccessType.ACCESSIBLE, true);
+		List<String> results = new ArrayList<>();
+
+		for (boolean batched : new boolean[] {false, true}) {
+			AccessWidenerWriter writer = new AccessWidenerWriter();
+			AccessWidenerWriter transitiveWriter = new AccessWidenerWriter();
+			AccessWidener widener = new AccessWidener();
+			AccessWidenerVisitor chain = new AccessWidenerRemapper(
+					new ForwardingVisitor(writer, widener, new TransitiveOnlyFilter(transitiveWriter)),
+					new SimpleRemapper(mappings),
+					"named",
+					"intermediary"
+			);
+			chain.visitHeader("named");
+
+			if (batched) {
+				batch.accept(chain);
+			} else {
+				batch.acceptEntries(chain);
+			}
+
+			AccessWidenerWriter widenerWriter = new AccessWidenerWriter();
+			widener.accept(widenerWriter);
+			results.add(writer.writeString() + transitiveWriter.writeString() + widenerWriter.writeString());
+		}
+
+		assertEquals(results.get(0), results.get(1));
+		assertThat(results.get(1)).contains("transitive-mutable\tfield\tnewa/NewClass\tnewField\tLnewa/NewClass;");
+	}
+
+	@Test
+	void testRecorderPassesBatchesAfterHeaders() {
+		AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+		recorder.visitHeader("named");
+		recorder.visitClass("a/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		recorder.visitHeader("named");
+		recorder.visitClass("b/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		recorder.visitClass("c/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		BatchCounter counter = new BatchCounter();
+
+		recorder.accept(counter);
+
+		assertThat(counter.batchSizes).containsExactly(1, 2);
+		assertEquals("accessWidener\tv2\tnamed\n"
+				+ "accessible\tclass\ta/Class\n"
+				+ "accessible\tclass\tb/Class\n"
+				+ "accessible\tclass\tc/Class\n", counter.writer.writeString());
+	}
+
+	@Test
+	void testVisitorErrorsReportTheLineOfTheEntry() {
+		String content = "accessWidener\tv2\tnamed\n"
+				+ "transitive-mutable\tclass\ta/Class\n"
+				+ "accessible\tclass\tb/Class\n"
+				+ "accessible\tclass\tc/Class\n"
+				+ "accessible\tclass\td/Class\n"
+				+ "accessible\tclass\te/Class\n";
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		AccessWidenerVisitor[] visitors = {
+				new AccessWidener(),
+				new ForwardingVisitor(new AccessWidener()),
+				new TransitiveOnlyFilter(new AccessWidener()),
+				new AccessWidenerRemapper(new AccessWidener(), new SimpleRemapper("a/Class", "a/Class"), "named", "named")
+		};
+
+		for (AccessWidenerVisitor visitor : visitors) {
+			AccessWidenerFormatException e = assertThrows(AccessWidenerFormatException.class, () -> new AccessWidenerReader(visitor).read(bytes));
+			assertEquals(2, e.getLineNumber());
+		}
+	}
+
+	@Test
+	void testPendingEntriesAreVisitedBeforeParseErrors() {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		byte[] content = ("accessWidener\tv2\tnamed\n"
+				+ "accessible\tclass\ta/Class\n"
+				+ "accessible\tclass\n").getBytes(StandardCharsets.UTF_8);
+
+		AccessWidenerFormatException e = assertThrows(AccessWidenerFormatException.class, () -> new AccessWidenerReader(writer).read(content));
+
+		assertEquals(3, e.getLineNumber());
+		assertEquals("accessWidener\tv2\tnamed\naccessible\tclass\ta/Class\n", writer.writeString());
+	}
+
+	@Test
+	void testClearKeepsCapacity() {
+		AccessWidenerBatch batch = new AccessWidenerBatch(2);
+		batch.addClass("a/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		batch.addClass("b/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		batch.addClass("c/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		batch.clear();
+
+		assertThat(batch.isEmpty()).isTrue();
+		batch.addMethod("d/Class", "m", "()V", AccessWidenerReader.AccessType.EXTENDABLE, true);
+		assertThat(batch.size()).isEqualTo(1);
+		assertThat(batch.getKind(0)).isEqualTo(AccessWidenerBatch.METHOD);
+		assertThat(batch.getOwner(0)).isEqualTo("d/Class");
+		assertThat(batch.isTransitive(0)).isTrue();
+	}
+
+	/**
+	 * Uses the default implementation of visitBatch, and records the size of each batch.
+	 */
+	private static final class BatchCounter implements AccessWidenerBatchVisitor {
+		final List<Integer> batchSizes = new ArrayList<>();
+		final AccessWidenerWriter writer = new AccessWidenerWriter();
+
+		@Override
+		public void visitHeader(String namespace) {
+			writer.visitHeader(namespace);
+		}
+
+		@Override
+		public void visitBatch(AccessWidenerBatch batch) {
+			batchSizes.add(batch.size());
+			AccessWidenerBatchVisitor.super.visitBatch(batch);
+		}
+
+		@Override
+		public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+			writer.visitClass(name, access, transitive);
+		}
+
+		@Override
+		public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+			writer.visitField(owner, name, descriptor, access, transitive);
+		}
+	}
+}
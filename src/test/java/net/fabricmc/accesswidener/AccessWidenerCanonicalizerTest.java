@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AccessWidenerCanonicalizerTest {
+	private static final String INPUT = "accessWidener\tv2\tnamed\n"
+			+ "mutable\tfield\tb/Class\tfield\tI\n"
+			+ "accessible\tclass\tb/Class\n"
+			+ "accessible\tfield\tb/Class\tfield\tI\n"
+			+ "accessible\tmethod\ta/Class\tmethod\t()V\n"
+			+ "accessible\tmethod\ta/Class\tmethod\t()V\n"
+			+ "transitive-accessible\tmethod\ta/Class\tmethod\t()V\n"
+			+ "extendable\tclass\ta/Class\n"
+			+ "transitive-extendable\tclass\tc/Class\n"
+			+ "extendable\tmethod\tc/Class\tmethod\t()V\n"
+			+ "extendable\tclass\td/Class\n"
+			+ "mutable\tfield\td/Class\tfield\tI\n"
+			+ "accessible\tclass\ta/Class\n"
+			+ "extendable\tmethod\ta/Class\tmethod\t(I)V\n"
+			+ "accessible\tclass\te/Class\n"
+			+ "transitive-accessible\tclass\tf/Class\n"
+			+ "accessible\tclass\tg/Class\n"
+			+ "extendable\tclass\tg/Class\n"
+			+ "transitive-accessible\tclass\th/Class\n"
+			+ "extendable\tclass\th/Class\n";
+
+	@Test
+	void testWritesMinimalSortedFile() {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		canonicalize(INPUT).accept(writer);
+
+		assertEquals("accessWidener\tv2\tnamed\n"
+				+ "transitive-accessible\tmethod\ta/Class\tmethod\t()V\n"
+				+ "extendable\tmethod\ta/Class\tmethod\t(I)V\n"
+				+ "accessible\tfield\tb/Class\tfield\tI\n"
+				+ "mutable\tfield\tb/Class\tfield\tI\n"
+				// Only implied for the declaring mod, not for dependents
+				+ "transitive-extendable\tclass\tc/Class\n"
+				+ "extendable\tmethod\tc/Class\tmethod\t()V\n"
+				// Mutable fields don't imply anything for their class
+				+ "extendable\tclass\td/Class\n"
+				+ "mutable\tfield\td/Class\tfield\tI\n"
+				// Class entries that nothing else implies
+				+ "accessible\tclass\te/Class\n"
+				+ "transitive-accessible\tclass\tf/Class\n"
+				// Extendable classes are accessible as well
+				+ "extendable\tclass\tg/Class\n"
+				+ "transitive-accessible\tclass\th/Class\n"
+				+ "extendable\tclass\th/Class\n", writer.writeString());
+	}
+
+	@Test
+	void testCanonicalFileIsEquivalent() {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		canonicalize(INPUT).accept(writer);
+
+		for (boolean transitiveOnly : new boolean[] {false, true}) {
+			AccessWidener expected = read(INPUT.getBytes(StandardCharsets.UTF_8), transitiveOnly);
+			AccessWidener actual = read(writer.write(), transitiveOnly);
+
+			assertEquals(normalize(expected.classAccess), normalize(actual.classAccess));
+			assertEquals(expected.methodAccess, actual.methodAccess);
+			assertEquals(expected.fieldAccess, actual.fieldAccess);
+			assertEquals(expected.getTargets(), actual.getTargets());
+		}
+	}
+
+	@Test
+	void testRejectsDifferentNamespaces() {
+		AccessWidenerCanonicalizer canonicalizer = new AccessWidenerCanonicalizer();
+		canonicalizer.visitHeader("ns1");
+		assertThrows(IllegalArgumentException.class, () -> canonicalizer.visitHeader("ns2"));
+	}
+
+	/**
+	 * Replaces accessible and extendable classes with extendable ones, which are transformed in the same way.
+	 */
+	private static Map<String, AccessWidener.Access> normalize(Map<String, AccessWidener.Access> classAccess) {
+		Map<String, AccessWidener.Access> normalized = new HashMap<>(classAccess);
+		normalized.replaceAll((name, access) -> access == AccessWidener.ClassAccess.ACCESSIBLE_EXTENDABLE ? AccessWidener.ClassAccess.EXTENDABLE : access);
+		return normalized;
+	}
+
+	private static AccessWidenerCanonicalizer canonicalize(String content) {
+		AccessWidenerCanonicalizer canonicalizer = new AccessWidenerCanonicalizer();
+		new AccessWidenerReader(canonicalizer).read(content.getBytes(StandardCharsets.UTF_8));
+		return canonicalizer;
+	}
+
+	private static AccessWidener read(byte[] content, boolean transitiveOnly) {
+		AccessWidener widener = new AccessWidener();
+		new AccessWidenerReader(transitiveOnly ? new TransitiveOnlyFilter(widener) : widener).read(content);
+		return widener;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+class AccessWidenerClassCacheTest {
+	AccessWidener widener = new AccessWidener();
+
+	@Test
+	void testTransformsEachClassOnce() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, Long.MAX_VALUE);
+
+		byte[] transformed = cache.transform(TestClasses.read("test/PackagePrivateClass"));
+		// Different array with the same content, as another class loader would read it
+		byte[] cached = cache.transform(TestClasses.read("test/PackagePrivateClass"));
+
+		assertNotSame(transformed, cached);
+		assertArrayEquals(transformed, cached);
+		assertArrayEquals(widener.transform(TestClasses.read("test/PackagePrivateClass")), cached);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getHitRate()).isEqualTo(0.5);
+		assertThat(cache.getWeight()).isEqualTo(AccessWidenerClassCache.getEntryWeight("test/PackagePrivateClass", transformed));
+	}
+
+	@Test
+	void testReturnedClassesCanBeModified() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, Long.MAX_VALUE);
+		byte[] expected = widener.transform(TestClasses.read("test/PackagePrivateClass"));
+
+		Arrays.fill(cache.transform(TestClasses.read("test/PackagePrivateClass")), (byte) 0);
+		Arrays.fill(cache.transform(TestClasses.read("test/PackagePrivateClass")), (byte) 0);
+
+		assertArrayEquals(expected, cache.transform(TestClasses.read("test/PackagePrivateClass")));
+	}
+
+	@Test
+	void testUntargetedClassesAreNotCached() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, Long.MAX_VALUE);
+		byte[] classBytes = TestClasses.read("test/FinalClass");
+
+		assertSame(classBytes, cache.transform(classBytes));
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(cache.getMisses()).isEqualTo(0);
+	}
+
+	@Test
+	void testUnchangedClassesAreReturnedAsIs() throws Exception {
+		widener.visitField("test/PackagePrivateClass", "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, Long.MAX_VALUE);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+
+		assertSame(classBytes, cache.transform(classBytes));
+		assertSame(classBytes, cache.transform(classBytes));
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getWeight()).isEqualTo(AccessWidenerClassCache.ENTRY_OVERHEAD + 2L * "test/PackagePrivateClass".length());
+	}
+
+	@Test
+	void testEvictsUnchangedClasses() {
+		long entryWeight = AccessWidenerClassCache.getEntryWeight("test/Generated00", new byte[0]);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, entryWeight * 10);
+
+		for (int i = 0; i < 100; i++) {
+			cache.transform(generateUnchangedClass(String.format("test/Generated%02d", i)));
+		}
+
+		assertThat(cache.size()).isEqualTo(10);
+		assertThat(cache.getEvictions()).isEqualTo(90);
+		assertThat(cache.getWeight()).isEqualTo(entryWeight * 10);
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsedEntries() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		byte[] packagePrivateClass = TestClasses.read("test/PackagePrivateClass");
+		byte[] finalClass = TestClasses.read("test/FinalClass");
+		long maxWeight = AccessWidenerClassCache.getEntryWeight("test/PackagePrivateClass", widener.transform(packagePrivateClass))
+				+ AccessWidenerClassCache.getEntryWeight("test/FinalClass", widener.transform(finalClass)) - 1;
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, maxWeight);
+
+		cache.transform(packagePrivateClass);
+		cache.transform(finalClass);
+
+		assertThat(cache.getEvictions()).isEqualTo(1);
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.getWeight()).isLessThanOrEqualTo(maxWeight);
+
+		cache.transform(finalClass);
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	void testRecentlyUsedEntriesAreKept() {
+		long entryWeight = AccessWidenerClassCache.getEntryWeight("test/Generated0", new byte[0]);
+		AccessWidenerClassCache cache = new AccessWidenerClassCache(widener, entryWeight * 2);
+		byte[] first = generateUnchangedClass("test/Generated0");
+		byte[] second = generateUnchangedClass("test/Generated1");
+
+		cache.transform(first);
+		cache.transform(second);
+		cache.transform(first);
+		cache.transform(generateUnchangedClass("test/Generated2"));
+
+		assertThat(cache.getEvictions()).isEqualTo(1);
+		cache.transform(first);
+		assertThat(cache.getHits()).isEqualTo(2);
+		cache.transform(second);
+		assertThat(cache.getMisses()).isEqualTo(4);
+	}
+
+	private byte[] generateUnchangedClass(String name) {
+		widener.visitField(name, "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		ClassWriter classWriter = new ClassWriter(0);
+		classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccessWidenerClassLoaderTest {
+	@TempDir
+	Path classesDir;
+	AccessWidener widener = new AccessWidener();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		copyTestClass("test/PackagePrivateClass");
+		copyTestClass("test/FinalClass");
+		Files.write(classesDir.resolve("test/resource.txt"), new byte[] {1, 2, 3});
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+	}
+
+	@Test
+	void testIsParallelCapable() throws IOException {
+		try (ClassSource source = ClassSource.of(classesDir)) {
+			assertThat(new AccessWidenerClassLoader(source, widener, null).isRegisteredAsParallelCapable()).isTrue();
+		}
+	}
+
+	@Test
+	void testTransformsOnlyTargets() throws Exception {
+		try (ClassSource source = ClassSource.of(classesDir)) {
+			ClassLoader loader = new AccessWidenerClassLoader(source, widener, null);
+
+			Class<?> packagePrivateClass = loader.loadClass("test.PackagePrivateClass");
+			Class<?> finalClass = loader.loadClass("test.FinalClass");
+
+			assertThat(packagePrivateClass.getClassLoader()).isSameAs(loader);
+			assertThat(Modifier.isPublic(packagePrivateClass.getModifiers())).isTrue();
+			assertThat(Modifier.isFinal(finalClass.getModifiers())).isTrue();
+			assertThrows(ClassNotFoundException.class, () -> loader.loadClass("test.Missing"));
+		}
+	}
+
+	@Test
+	void testUsesPrewarmedClasses() throws Exception {
+		try (ClassSource source = ClassSource.of(classesDir)) {
+			AccessWidenerPrewarmer prewarmer = new AccessWidenerPrewarmer(widener, source, 1, Long.MAX_VALUE);
+			prewarmer.start();
+			assertThat(prewarmer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+			ClassLoader loader = new AccessWidenerClassLoader(source, widener, prewarmer, null);
+
+			Class<?> packagePrivateClass = loader.loadClass("test.PackagePrivateClass");
+
+			assertThat(Modifier.isPublic(packagePrivateClass.getModifiers())).isTrue();
+			assertThat(prewarmer.getTaken()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void testFindsResources() throws IOException {
+		try (ClassSource source = ClassSource.of(classesDir)) {
+			ClassLoader loader = new AccessWidenerClassLoader(source, widener, null);
+
+			URL url = loader.getResource("test/resource.txt");
+
+			try (InputStream in = Objects.requireNonNull(url).openStream()) {
+				assertArrayEquals(new byte[] {1, 2, 3}, in.readAllBytes());
+			}
+
+			assertThat(loader.getResource("test/missing.txt")).isNull();
+		}
+	}
+
+	@Test
+	void testFindsResourcesInEveryRoot(@TempDir Path otherDir) throws IOException {
+		String name = "META-INF/services/test.Service";
+		Files.createDirectories(classesDir.resolve(name).getParent());
+		Files.write(classesDir.resolve(name), new byte[] {1});
+		Files.createDirectories(otherDir.resolve(name).getParent());
+		Files.write(otherDir.resolve(name), new byte[] {2});
+
+		try (ClassSource source = ClassSource.of(classesDir, otherDir)) {
+			ClassLoader loader = new AccessWidenerClassLoader(source, widener, null);
+			List<URL> urls = Collections.list(loader.getResources(name));
+
+			assertThat(urls).containsExactly(classesDir.resolve(name).toUri().toURL(), otherDir.resolve(name).toUri().toURL());
+			assertThat(Collections.list(loader.getResources("test/missing.txt"))).isEmpty();
+		}
+	}
+
+	private void copyTestClass(String name) throws IOException {
+		Path path = classesDir.resolve(name + ".class");
+		Files.createDirectories(path.getParent());
+
+		Files.write(path, TestClasses.read(name));
+	}
+}
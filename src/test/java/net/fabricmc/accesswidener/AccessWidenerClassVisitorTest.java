@@ -34,6 +34,7 @@ import org.junit.jupiter.api.Test;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import test.PrivateInnerClass;
 
@@ -206,6 +207,26 @@ class AccessWidenerClassVisitorTest {
 			assertThat(result).isEqualTo(456);
 			assertThat(resultWithLambda).isEqualTo(456);
 		}
+
+		@Test
+		void testMethodVisitorIsOnlyWrappedForClassesWithWidenedMethods() {
+			widener.visitMethod("test/MethodTests", "privateMethod", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+			widener.visitMethod("test/FieldTests", "<init>", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+			MethodVisitor downstream = new MethodVisitor(Opcodes.ASM9) { };
+			ClassVisitor visitor = AccessWidenerClassVisitor.createClassVisitor(Opcodes.ASM9, new ClassVisitor(Opcodes.ASM9) {
+				@Override
+				public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+					return downstream;
+				}
+			}, widener);
+
+			visitor.visit(Opcodes.V17, 0, "test/MethodTests", null, "java/lang/Object", null);
+			assertThat(visitor.visitMethod(0, "finalMethod", "()V", null, null)).isNotSameAs(downstream);
+
+			// Widened constructors never need INVOKESPECIAL to be rewritten
+			visitor.visit(Opcodes.V17, 0, "test/FieldTests", null, "java/lang/Object", null);
+			assertThat(visitor.visitMethod(0, "<init>", "()V", null, null)).isSameAs(downstream);
+		}
 	}
 
 	/**
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class AccessWidenerCompilerTest {
+	private final AccessWidener widener = new AccessWidener();
+
+	@Test
+	void testCompiledRulesMatchMaps() {
+		// "Aa" and "BB" have the same hash code
+		widener.visitClass("a/Aa", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("a/BB", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitMethod("a/Aa", "Aa", "()V", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitMethod("a/Aa", "BB", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitMethod("a/Aa", "BB", "(I)V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitMethod("a/Aa", "BB", "(I)V", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitField("a/BB", "Aa", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		widener.visitField("a/BB", "Aa", "J", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+
+		AccessWidenerCompiler.Rules rules = AccessWidenerCompiler.compile(widener);
+		assertNotNull(rules);
+		assertTrue(rules.getClass().isHidden());
+
+		for (String name : new String[] {"a/Aa", "a/BB", "a/C", "Aa"}) {
+			assertEquals(widener.getClassAccess(name), rules.getClassAccess(name));
+
+			for (String member : new String[] {"Aa", "BB", "C"}) {
+				for (String descriptor : new String[] {"()V", "(I)V", "I", "J"}) {
+					assertEquals(widener.getMethodAccess(name, member, descriptor), rules.getMethodAccess(name, member, descriptor));
+					assertEquals(widener.getFieldAccess(name, member, descriptor), rules.getFieldAccess(name, member, descriptor));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testEmptyRules() {
+		AccessWidenerCompiler.Rules rules = AccessWidenerCompiler.compile(widener);
+
+		assertEquals(AccessWidener.ClassAccess.DEFAULT, rules.getClassAccess("a/B"));
+		assertEquals(AccessWidener.MethodAccess.DEFAULT, rules.getMethodAccess("a/B", "c", "()V"));
+		assertEquals(AccessWidener.FieldAccess.DEFAULT, rules.getFieldAccess("a/B", "c", "I"));
+	}
+
+	@Test
+	void testTransformWithCompiledRules() throws IOException {
+		widener.visitMethod("test/MethodTests", "privateMethod", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/MethodTests");
+		byte[] expected = widener.transform(classBytes);
+
+		assertTrue(widener.compileRules());
+		assertArrayEquals(expected, widener.transform(classBytes));
+	}
+
+	@Test
+	void testVisitingRulesDiscardsCompiledRules() {
+		assertTrue(widener.compileRules());
+		widener.visitClass("a/B", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+
+		assertEquals(AccessWidener.ClassAccess.ACCESSIBLE, widener.getClassAccess("a/B"));
+	}
+
+	@Test
+	void testCompileLazyRules() {
+		AccessWidener lazy = AccessWidener.readLazily(("accessWidener\tv2\tnamed\n"
+				+ "accessible\tfield\ta/B\tc\tI\n").getBytes(StandardCharsets.UTF_8), null);
+
+		assertTrue(lazy.compileRules());
+		assertEquals(AccessWidener.FieldAccess.ACCESSIBLE, lazy.getFieldAccess("a/B", "c", "I"));
+		assertEquals(1, lazy.lazyRules.getParsedCount());
+	}
+}
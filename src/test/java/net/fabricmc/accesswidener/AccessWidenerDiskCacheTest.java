@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+class AccessWidenerDiskCacheTest {
+	@TempDir
+	Path cacheDir;
+
+	@Test
+	void testServesCachedClassOnHit() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+
+		byte[] transformed = new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE).transform(widener, classBytes);
+		// A new instance has to read the entry from disk
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE);
+		byte[] cached = cache.transform(widener, classBytes);
+
+		assertArrayEquals(widener.transform(classBytes), transformed);
+		assertArrayEquals(transformed, cached);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(0);
+		assertThat(cache.getSize()).isEqualTo(AccessWidenerDiskCache.getEntrySize(transformed.length));
+	}
+
+	@Test
+	void testUnchangedClassesAreReturnedAsIs() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitField("test/PackagePrivateClass", "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE);
+
+		assertSame(classBytes, cache.transform(widener, classBytes));
+		assertSame(classBytes, cache.transform(widener, classBytes));
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(AccessWidenerDiskCache.MIN_ENTRY_SIZE);
+	}
+
+	@Test
+	void testEvictsUnchangedClasses() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, 2L * AccessWidenerDiskCache.MIN_ENTRY_SIZE);
+
+		for (int i = 0; i < 5; i++) {
+			String name = "test/Generated" + i;
+			widener.visitField(name, "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+			ClassWriter classWriter = new ClassWriter(0);
+			classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+			classWriter.visitEnd();
+			cache.transform(widener, classWriter.toByteArray());
+		}
+
+		assertThat(cache.getSize()).isLessThanOrEqualTo(2L * AccessWidenerDiskCache.MIN_ENTRY_SIZE);
+		assertThat(new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE).getSize()).isEqualTo(cache.getSize());
+	}
+
+	@Test
+	void testStoringAnEntryTwiceCountsItOnce() throws Exception {
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE);
+		Path file = cacheDir.resolve("ab").resolve("abcd");
+
+		assertTrue(cache.store(file, new byte[] {1, 2, 3}));
+		assertFalse(cache.store(file, new byte[] {1, 2, 3}));
+
+		assertThat(cache.getSize()).isEqualTo(AccessWidenerDiskCache.MIN_ENTRY_SIZE);
+		assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(file));
+
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			// No temporary files are left behind
+			assertThat(files.count()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void testRuleChangesOnlyInvalidateAffectedClasses() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		byte[] packagePrivateClass = TestClasses.read("test/PackagePrivateClass");
+		byte[] finalClass = TestClasses.read("test/FinalClass");
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, Long.MAX_VALUE);
+		cache.transform(widener, packagePrivateClass);
+		cache.transform(widener, finalClass);
+
+		// Same rules in a different order, plus a new rule that only affects one of the classes
+		AccessWidener changedWidener = new AccessWidener();
+		changedWidener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		changedWidener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		changedWidener.visitMethod("test/PackagePrivateClass", "<init>", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		cache.transform(changedWidener, packagePrivateClass);
+		cache.transform(changedWidener, finalClass);
+
+		assertThat(cache.getMisses()).isEqualTo(3);
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	void testEvictsEntriesAboveMaxSize() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		byte[] packagePrivateClass = TestClasses.read("test/PackagePrivateClass");
+		byte[] finalClass = TestClasses.read("test/FinalClass");
+		long maxSize = AccessWidenerDiskCache.getEntrySize(widener.transform(finalClass).length);
+		AccessWidenerDiskCache cache = new AccessWidenerDiskCache(cacheDir, maxSize);
+
+		cache.transform(widener, packagePrivateClass);
+		Thread.sleep(1100); // Some file systems only store modification times in seconds
+		cache.transform(widener, finalClass);
+
+		assertThat(cache.getSize()).isLessThanOrEqualTo(maxSize);
+		// The older entry was evicted
+		cache.transform(widener, finalClass);
+		cache.transform(widener, packagePrivateClass);
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+class AccessWidenerJarTransformerTest {
+	@TempDir
+	Path tempDir;
+
+	AccessWidener widener = new AccessWidener();
+
+	@Test
+	void testTransformsTargetsAndCopiesOtherEntries() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		Path input = createInputJar();
+		Path output = tempDir.resolve("output.jar");
+
+		AccessWidenerJarTransformer.Stats stats = new AccessWidenerJarTransformer(widener, 2, 1024).transform(input, output);
+
+		assertThat(stats.getEntries()).isEqualTo(4);
+		assertThat(stats.getClassesTransformed()).isEqualTo(1);
+
+		try (ZipFile zip = new ZipFile(output.toFile())) {
+			List<String> names = new ArrayList<>();
+			zip.stream().forEach(entry -> names.add(entry.getName()));
+			// Entry order is kept, even though only some entries were transformed
+			assertThat(names).containsExactly("META-INF/", "test/PackagePrivateClass.class", "data.txt", "test/FinalClass.class");
+
+			assertThat(readAccess(zip, "test/PackagePrivateClass.class") & Opcodes.ACC_PUBLIC).isNotEqualTo(0);
+			assertArrayEquals(TestClasses.read("test/FinalClass"), zip.getInputStream(zip.getEntry("test/FinalClass.class")).readAllBytes());
+			assertArrayEquals("some data".getBytes(StandardCharsets.UTF_8), zip.getInputStream(zip.getEntry("data.txt")).readAllBytes());
+		}
+	}
+
+	@Test
+	void testDoesNotCountUnchangedTargets() throws Exception {
+		// Already public, so widening it doesn't change the class
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		Path input = createInputJar();
+		Path output = tempDir.resolve("output.jar");
+
+		AccessWidenerJarTransformer.Stats stats = new AccessWidenerJarTransformer(widener, 2, 1024).transform(input, output);
+
+		assertThat(stats.getClassesTransformed()).isEqualTo(0);
+
+		try (ZipFile zip = new ZipFile(output.toFile())) {
+			assertArrayEquals(TestClasses.read("test/FinalClass"), zip.getInputStream(zip.getEntry("test/FinalClass.class")).readAllBytes());
+		}
+	}
+
+	@Test
+	void testOutputIsDeterministic() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		Path input = createInputJar();
+		Path output1 = tempDir.resolve("output1.jar");
+		Path output2 = tempDir.resolve("output2.jar");
+
+		new AccessWidenerJarTransformer(widener, 4, 1).transform(input, output1);
+		Thread.sleep(2000); // Zip timestamps have a 2 second resolution
+		new AccessWidenerJarTransformer(widener, 1, Long.MAX_VALUE).transform(input, output2);
+
+		assertArrayEquals(Files.readAllBytes(output1), Files.readAllBytes(output2));
+	}
+
+	private Path createInputJar() throws IOException {
+		Path input = tempDir.resolve("input.jar");
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+			out.putNextEntry(new ZipEntry("META-INF/"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("test/PackagePrivateClass.class"));
+			out.write(TestClasses.read("test/PackagePrivateClass"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("data.txt"));
+			out.write("some data".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("test/FinalClass.class"));
+			out.write(TestClasses.read("test/FinalClass"));
+			out.closeEntry();
+		}
+
+		return input;
+	}
+
+	private int readAccess(ZipFile zip, String name) throws IOException {
+		try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+			return new ClassReader(in).getAccess();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+class AccessWidenerPipelineTest {
+	private static final byte[] CONTENT = ("accessWidener\tv2\tnamed\n"
+			+ "accessible\tclass\ta/Class\n"
+			+ "transitive-extendable\tclass\ta/Class\n"
+			+ "transitive-accessible\tmethod\ta/Class\tmethod\t(La/Class;)V\n"
+			+ "extendable\tmethod\ta/Class\tmethod\t(La/Class;)V\n"
+			+ "transitive-mutable\tfield\ta/Class\tfield\tLa/Class;\n").getBytes(StandardCharsets.UTF_8);
+
+	SimpleRemapper remapper = createRemapper();
+
+	@Test
+	void testFusedPipelineMatchesDecorators() {
+		AccessWidenerWriter fusedWriter = new AccessWidenerWriter();
+		AccessWidener fusedWidener = new AccessWidener();
+		AccessWidenerVisitor fused = AccessWidenerPipeline.builder()
+				.transitiveOnly()
+				.remap(remapper, "named", "intermediary")
+				.build(fusedWriter, fusedWidener);
+		AccessWidenerWriter expectedWriter = new AccessWidenerWriter();
+		AccessWidener expectedWidener = new AccessWidener();
+		AccessWidenerVisitor decorated = new TransitiveOnlyFilter(new AccessWidenerRemapper(
+				new ForwardingVisitor(expectedWriter, expectedWidener), remapper, "named", "intermediary"));
+
+		new AccessWidenerReader(fused).read(CONTENT);
+		new AccessWidenerReader(decorated).read(CONTENT);
+
+		assertThat(fused).isInstanceOf(AccessWidenerPipeline.FusedVisitor.class);
+		assertEquals(expectedWriter.writeString(), fusedWriter.writeString());
+		assertEquals("accessWidener\tv2\tintermediary\n"
+				+ "transitive-extendable\tclass\tnewa/NewClass\n"
+				+ "transitive-accessible\tmethod\tnewa/NewClass\tnewMethod\t(Lnewa/NewClass;)V\n"
+				+ "transitive-mutable\tfield\tnewa/NewClass\tnewField\tLnewa/NewClass;\n", fusedWriter.writeString());
+		assertEquals(expectedWidener.methodAccess, fusedWidener.methodAccess);
+		assertEquals(expectedWidener.transitiveFieldAccess, fusedWidener.transitiveFieldAccess);
+	}
+
+	@Test
+	void testFusedPipelineMatchesDecoratorsForManyEntries() {
+		AccessWidenerRecorder recorder = createEntries(300);
+		Remapper prefixRemapper = new Remapper() {
+			@Override
+			public String map(String internalName) {
+				return internalName.startsWith("a/") ? "b/" + internalName.substring(2) : internalName;
+			}
+		};
+		AccessWidenerWriter fusedWriter = new AccessWidenerWriter();
+		AccessWidenerWriter expectedWriter = new AccessWidenerWriter();
+
+		recorder.accept(AccessWidenerPipeline.builder()
+				.transitiveOnly()
+				.remap(prefixRemapper, "named", "intermediary")
+				.build(fusedWriter));
+		recorder.accept(new TransitiveOnlyFilter(new AccessWidenerRemapper(expectedWriter, prefixRemapper, "named", "intermediary")));
+
+		assertEquals(expectedWriter.writeString(), fusedWriter.writeString());
+		// Every other entry is transitive, plus the header line
+		assertEquals(150 + 1, fusedWriter.writeString().split("\n").length);
+		assertThat(fusedWriter.writeString()).doesNotContain("a/Class");
+	}
+
+	@Test
+	void testCustomStagesAreNotFused() {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		AccessWidenerVisitor pipeline = AccessWidenerPipeline.builder()
+				.stage(TransitiveOnlyFilter::new)
+				.remap(remapper, "named", "intermediary")
+				.build(writer);
+
+		new AccessWidenerReader(pipeline).read(CONTENT);
+
+		assertThat(pipeline).isInstanceOf(TransitiveOnlyFilter.class);
+		assertThat(writer.writeString()).contains("transitive-accessible\tmethod\tnewa/NewClass\tnewMethod\t(Lnewa/NewClass;)V");
+		assertThat(writer.writeString()).doesNotContain("\textendable\tmethod");
+	}
+
+	@Test
+	void testChecksNamespace() {
+		AccessWidenerVisitor pipeline = AccessWidenerPipeline.builder()
+				.remap(remapper, "intermediary", "named")
+				.build(new AccessWidenerWriter());
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> pipeline.visitHeader("named"));
+		assertThat(e).hasMessageContaining("Cannot remap access widener from namespace 'named'");
+	}
+
+	private static AccessWidenerRecorder createEntries(int entries) {
+		AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+		recorder.visitHeader("named");
+
+		for (int i = 0; i < entries; i++) {
+			String owner = "a/Class" + (i / 16);
+			boolean transitive = i % 2 == 0;
+
+			switch (i % 3) {
+			case 0:
+				recorder.visitClass(owner, AccessWidenerReader.AccessType.ACCESSIBLE, transitive);
+				break;
+			case 1:
+				recorder.visitMethod(owner, "method" + i, "(L" + owner + ";)V", AccessWidenerReader.AccessType.EXTENDABLE, transitive);
+				break;
+			default:
+				recorder.visitField(owner, "field" + i, "L" + owner + ";", AccessWidenerReader.AccessType.MUTABLE, transitive);
+				break;
+			}
+		}
+
+		return recorder;
+	}
+
+	private static SimpleRemapper createRemapper() {
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class", "newa/NewClass");
+		mappings.put("a/Class.method(La/Class;)V", "newMethod");
+		mappings.put("a/Class.field", "newField");
+		return new SimpleRemapper(mappings);
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccessWidenerPrewarmerTest {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testPreparesAllTargets() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitClass("test/Missing", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		copyTestClass(tempDir, "test/PackagePrivateClass");
+		copyTestClass(tempDir, "test/FinalClass");
+
+		try (ClassSource source = ClassSource.of(tempDir)) {
+			AccessWidenerPrewarmer prewarmer = new AccessWidenerPrewarmer(widener, source, 2, Long.MAX_VALUE);
+			prewarmer.start();
+
+			assertThat(prewarmer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(prewarmer.getPrepared()).isEqualTo(2);
+
+			byte[] transformed = prewarmer.take("test.PackagePrivateClass");
+			assertArrayEquals(widener.transform(TestClasses.read("test/PackagePrivateClass")), transformed);
+			// Classes are handed out only once
+			assertThat(prewarmer.take("test.PackagePrivateClass")).isNull();
+			assertThat(prewarmer.take("test.Missing")).isNull();
+			assertThat(prewarmer.getTaken()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void testDiscardsClassesOverBudget() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		copyTestClass(tempDir, "test/PackagePrivateClass");
+
+		try (ClassSource source = ClassSource.of(tempDir)) {
+			AccessWidenerPrewarmer prewarmer = new AccessWidenerPrewarmer(widener, source, 1, 16);
+			prewarmer.start();
+
+			assertThat(prewarmer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(prewarmer.getDiscarded()).isEqualTo(1);
+			assertThat(prewarmer.getReadyBytes()).isZero();
+			assertThat(prewarmer.take("test.PackagePrivateClass")).isNull();
+		}
+	}
+
+	@Test
+	void testDiscardsClassesRequestedWhilePreparing() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch taken = new CountDownLatch(1);
+		ClassSource source = new ClassSource() {
+			@Override
+			public byte[] read(String internalName) throws IOException {
+				reading.countDown();
+
+				try {
+					taken.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+
+				return TestClasses.read(internalName);
+			}
+
+			@Override
+			public Path findResource(String name) {
+				return null;
+			}
+		};
+
+		AccessWidenerPrewarmer prewarmer = new AccessWidenerPrewarmer(widener, source, 1, Long.MAX_VALUE);
+		prewarmer.start();
+		assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(prewarmer.take("test.PackagePrivateClass")).isNull();
+		taken.countDown();
+
+		assertThat(prewarmer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(prewarmer.getDiscarded()).isEqualTo(1);
+		assertThat(prewarmer.getPrepared()).isZero();
+		assertThat(prewarmer.getReadyBytes()).isZero();
+	}
+
+	@Test
+	void testReadsFromJars() throws Exception {
+		Path jar = tempDir.resolve("classes.jar");
+
+		try (FileSystem fileSystem = FileSystems.newFileSystem(URI.create("jar:" + jar.toUri()), Collections.singletonMap("create", "true"))) {
+			copyTestClass(fileSystem.getPath("/"), "test/FinalClass");
+		}
+
+		try (ClassSource source = ClassSource.of(jar)) {
+			assertArrayEquals(TestClasses.read("test/FinalClass"), source.read("test/FinalClass"));
+			assertThat(source.read("test/PackagePrivateClass")).isNull();
+		}
+	}
+
+	private void copyTestClass(Path root, String name) throws IOException {
+		Path path = root.resolve(name + ".class");
+		Files.createDirectories(path.getParent());
+
+		try (OutputStream out = Files.newOutputStream(path)) {
+			out.write(TestClasses.read(name));
+		}
+	}
+}
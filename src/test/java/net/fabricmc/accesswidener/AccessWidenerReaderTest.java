@@ -470,6 +470,35 @@ public class AccessWidenerReaderTest {
 			assertThat(visitor.fieldAccess).hasSize(2);
 		}
 
+		@Test
+		void nonTransitiveLinesAreNotParsedWithTransitiveOnlyReaderFilter() throws Exception {
+			reader = new AccessWidenerReader(visitor, AccessWidenerFilter.ALL.transitiveOnly());
+			// The invalid line would fail if it was parsed
+			parse("accessWidener\tv2\tnamespace\n"
+					+ "accessible\tmethod\tsome/Class\tinvalid\n"
+					+ "transitive-accessible\tmethod\tsome/Class\tmethod\t()V\n");
+
+			assertThat(visitor.methodAccess).containsOnlyKeys(new EntryTriple("some/Class", "method", "()V"));
+		}
+
+		@Test
+		void nonTransitiveLinesAreStillValidatedForTransitiveOnlyFilter() {
+			reader = new AccessWidenerReader(new TransitiveOnlyFilter(visitor));
+			assertFormatError(
+					"Expected (<access> class <className>) got (accessible\tclass)",
+					() -> parse("accessWidener\tv2\tnamespace\naccessible\tclass\n")
+			);
+		}
+
+		@Test
+		void unknownKindsAreReportedWithTransitiveOnlyReaderFilter() {
+			reader = new AccessWidenerReader(visitor, AccessWidenerFilter.ALL.transitiveOnly());
+			assertFormatError(
+					"Unsupported type: 'module'",
+					() -> parse("accessWidener\tv2\tnamespace\naccessible\tmodule\tsome/Class\n")
+			);
+		}
+
 		private void assertWidenerContains(String prefix) {
 			assertThat(visitor.classAccess).contains(
 					entry(prefix + "/AccessibleClass", AccessWidener.ClassAccess.ACCESSIBLE),
@@ -488,6 +517,57 @@ public class AccessWidenerReaderTest {
 		}
 	}
 
+	@Nested
+	class Filters {
+		@Test
+		void testKindFilter() throws Exception {
+			reader = new AccessWidenerReader(visitor, AccessWidenerFilter.ALL.kinds(AccessWidenerFilter.FIELDS));
+			parse("accessWidener\tv2\tnamespace\n"
+					+ "accessible\tclass\tsome/Class\n"
+					+ "accessible\tmethod\tsome/Class\tmethod\tinvalid\n"
+					+ "mutable\tfield\tsome/Class\tfield\tI\n");
+
+			assertThat(visitor.classAccess).isEmpty();
+			assertThat(visitor.methodAccess).isEmpty();
+			assertThat(visitor.fieldAccess).containsOnlyKeys(new EntryTriple("some/Class", "field", "I"));
+		}
+
+		@Test
+		void testOwnerPrefixFilter() throws Exception {
+			reader = new AccessWidenerReader(visitor, AccessWidenerFilter.ALL.ownerPrefixes("a/", "b/Some"));
+			parse("accessWidener v1 namespace\n"
+					+ "accessible class a/Class\n"
+					+ "accessible class b/SomeClass\n"
+					+ "accessible class b/OtherClass\n"
+					+ "accessible method c/Class method ()V\n"
+					+ "accessible class java.lang.String\n"
+					+ "mutable field a/b/Class field I\n");
+
+			assertThat(visitor.getTargets()).containsOnly("a.Class", "b.SomeClass", "a.b.Class");
+		}
+
+		@Test
+		void testUnknownKindsAreStillReported() {
+			reader = new AccessWidenerReader(visitor, AccessWidenerFilter.ALL.kinds(AccessWidenerFilter.CLASSES));
+			assertFormatError(
+					"Unsupported type: 'module'",
+					() -> parseLines("accessible module some/Class")
+			);
+		}
+
+		@Test
+		void testFilterChecksAllConditions() {
+			AccessWidenerFilter filter = AccessWidenerFilter.ALL.transitiveOnly().kinds(AccessWidenerFilter.METHODS).ownerPrefixes("a/");
+
+			assertThat(AccessWidenerFilter.ALL.acceptsAll()).isTrue();
+			assertThat(filter.acceptsAll()).isFalse();
+			assertThat(filter.accepts(AccessWidenerFilter.METHODS, "a/Class", true)).isTrue();
+			assertThat(filter.accepts(AccessWidenerFilter.METHODS, "a/Class", false)).isFalse();
+			assertThat(filter.accepts(AccessWidenerFilter.FIELDS, "a/Class", true)).isFalse();
+			assertThat(filter.accepts(AccessWidenerFilter.METHODS, "b/Class", true)).isFalse();
+		}
+	}
+
 	private void parse(String content) throws IOException {
 		reader.read(new BufferedReader(new StringReader(content)));
 	}
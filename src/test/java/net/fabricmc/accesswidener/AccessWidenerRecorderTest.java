@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+class AccessWidenerRecorderTest {
+	private static final byte[] CONTENT = ("accessWidener\tv2\tnamed\n"
+			+ "accessible\tclass\ta/Class\n"
+			+ "transitive-extendable\tclass\ta/Class\n"
+			+ "transitive-accessible\tmethod\ta/Class\tmethod\t(La/Class;)V\n"
+			+ "extendable\tmethod\ta/Class\tmethod\t(La/Class;)V\n"
+			+ "mutable\tfield\tb/Class\tfield\tLa/Class;\n"
+			+ "transitive-accessible\tfield\tb/Class\tfield\tLa/Class;\n").getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void testReplaysEventsInOrder() {
+		AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+		new AccessWidenerReader(recorder).read(CONTENT);
+
+		for (boolean transitiveOnly : new boolean[] {false, true}) {
+			AccessWidenerWriter expected = new AccessWidenerWriter();
+			new AccessWidenerReader(transitiveOnly ? new TransitiveOnlyFilter(expected) : expected).read(CONTENT);
+			AccessWidenerWriter actual = new AccessWidenerWriter();
+			recorder.accept(transitiveOnly ? new TransitiveOnlyFilter(actual) : actual);
+
+			assertEquals(expected.writeString(), actual.writeString());
+		}
+
+		assertThat(recorder.getEventCount()).isEqualTo(7);
+		// named, a/Class, method, (La/Class;)V, b/Class, field, La/Class;
+		assertThat(recorder.getStringCount()).isEqualTo(7);
+	}
+
+	@Test
+	void testReplaysConcurrently() {
+		AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+		new AccessWidenerReader(recorder).read(CONTENT);
+		List<CompletableFuture<String>> results = new ArrayList<>();
+
+		for (int i = 0; i < 8; i++) {
+			results.add(CompletableFuture.supplyAsync(() -> {
+				AccessWidenerWriter writer = new AccessWidenerWriter();
+				recorder.accept(writer);
+				return writer.writeString();
+			}));
+		}
+
+		for (CompletableFuture<String> result : results) {
+			assertEquals(new String(CONTENT, StandardCharsets.UTF_8), result.join());
+		}
+	}
+
+	@Test
+	void testGrowsBeyondInitialCapacity() {
+		AccessWidenerRecorder recorder = new AccessWidenerRecorder();
+		AccessWidenerWriter expected = new AccessWidenerWriter();
+		recorder.visitHeader("named");
+		expected.visitHeader("named");
+
+		for (int i = 0; i < 100; i++) {
+			recorder.visitField("a/Class" + i, "field" + i, "I", AccessWidenerReader.AccessType.MUTABLE, i % 2 == 0);
+			expected.visitField("a/Class" + i, "field" + i, "I", AccessWidenerReader.AccessType.MUTABLE, i % 2 == 0);
+		}
+
+		AccessWidenerWriter actual = new AccessWidenerWriter();
+		recorder.accept(actual);
+
+		assertEquals(expected.writeString(), actual.writeString());
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccessWidenerStreamWriterTest {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testWritesSameContentAsAccessWidenerWriter() throws IOException {
+		for (int version = 1; version <= 2; version++) {
+			AccessWidenerWriter writer = new AccessWidenerWriter(version);
+			accept(writer, version >= 2);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+			try (AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(out, version)) {
+				accept(streamWriter, version >= 2);
+			}
+
+			assertArrayEquals(writer.write(), out.toByteArray());
+		}
+	}
+
+	@Test
+	void testWritesToChannel() throws IOException {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		accept(writer, true);
+		Path file = tempDir.resolve("test.accesswidener");
+
+		try (AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+			accept(streamWriter, true);
+		}
+
+		assertArrayEquals(writer.write(), Files.readAllBytes(file));
+	}
+
+	@Test
+	void testFlushesWhileWriting() throws IOException {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(Channels.newChannel(out));
+
+		for (AccessWidenerVisitor visitor : new AccessWidenerVisitor[] {writer, streamWriter}) {
+			visitor.visitHeader("ns");
+
+			for (int i = 0; i < 1000; i++) {
+				visitor.visitClass("pkg/SomeClass" + i, AccessWidenerReader.AccessType.ACCESSIBLE, false);
+			}
+		}
+
+		// Only the last partial buffer is still pending
+		byte[] expected = writer.write();
+		assertThat(out.size()).isPositive();
+		assertThat(out.size()).isLessThanOrEqualTo(expected.length);
+		streamWriter.flush();
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	void testEncodesNonAsciiNames() throws IOException {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try (AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(out)) {
+			for (AccessWidenerVisitor visitor : new AccessWidenerVisitor[] {writer, streamWriter}) {
+				visitor.visitHeader("ns");
+				visitor.visitField("pkg/Ünïcödé", "名前", "L𝄞;", AccessWidenerReader.AccessType.MUTABLE, false);
+				visitor.visitField("pkg/Broken", "\uD834", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+			}
+		}
+
+		assertArrayEquals(writer.write(), out.toByteArray());
+	}
+
+	@Test
+	void testRequiresHeaderFirst() {
+		AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(new ByteArrayOutputStream());
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> streamWriter.visitClass("name", AccessWidenerReader.AccessType.ACCESSIBLE, false));
+		assertThat(e).hasMessageContaining("No namespace set");
+	}
+
+	@Test
+	void testRejectsWritingV2FeaturesInV1Version() {
+		AccessWidenerStreamWriter streamWriter = new AccessWidenerStreamWriter(new ByteArrayOutputStream(), 1);
+		streamWriter.visitHeader("ns1");
+		Exception e = assertThrows(Exception.class, () -> streamWriter.visitClass("name", AccessWidenerReader.AccessType.EXTENDABLE, true));
+		assertThat(e).hasMessageContaining("Cannot write transitive rule in version 1");
+	}
+
+	private void accept(AccessWidenerVisitor visitor, boolean includeV2Content) {
+		visitor.visitHeader("somenamespace");
+		visitor.visitClass("pkg/AccessibleClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		visitor.visitClass("pkg/ExtendableClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		visitor.visitMethod("pkg/AccessibleClass", "method", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		visitor.visitField("pkg/AccessibleClass", "finalField", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+
+		if (includeV2Content) {
+			visitor.visitClass("pkg/TransitiveAccessibleClass", AccessWidenerReader.AccessType.ACCESSIBLE, true);
+			visitor.visitMethod("pkg/TransitiveAccessibleClass", "method", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, true);
+			visitor.visitField("pkg/TransitiveAccessibleClass", "field", "I", AccessWidenerReader.AccessType.ACCESSIBLE, true);
+		}
+	}
+}
@@ -19,9 +19,21 @@ package net.fabricmc.accesswidener;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
 
 public class AccessWidenerTest {
 	AccessWidener widener = new AccessWidener();
@@ -63,4 +75,150 @@ public class AccessWidenerTest {
 		assertThat(widener.getTargets()).containsOnly("a.b.C");
 		assertEquals(AccessWidener.ClassAccess.ACCESSIBLE, widener.getClassAccess("a/b/C"));
 	}
+
+	@Test
+	void testTransformReturnsInputForUntargetedClass() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/FinalClass");
+		assertSame(classBytes, widener.transform(classBytes));
+	}
+
+	@Test
+	void testTransformReturnsInputIfNothingChanged() throws Exception {
+		// The class is targeted, but the rule doesn't match any of its members
+		widener.visitField("test/PackagePrivateClass", "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+		assertSame(classBytes, widener.transform(classBytes));
+	}
+
+	@Test
+	void testTransform() throws Exception {
+		widener.visitMethod("test/MethodTests", "privateMethod", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/MethodTests");
+		ClassNode classNode = readClass(widener.transform(classBytes), 0);
+
+		assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, classNode.access);
+		MethodNode method = classNode.methods.stream().filter(m -> m.name.equals("privateMethod")).findFirst().orElseThrow();
+		assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, method.access);
+		assertThat(countLineNumbers(classNode)).isPositive();
+	}
+
+	@Test
+	void testTransformSkippingDebugInfo() throws Exception {
+		widener.visitMethod("test/MethodTests", "privateMethod", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/MethodTests");
+		ClassNode classNode = readClass(widener.transform(classBytes, true), 0);
+
+		assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, classNode.access);
+		assertThat(countLineNumbers(classNode)).isZero();
+	}
+
+	@Test
+	void testRemap() {
+		widener.visitHeader("named");
+		widener.visitClass("a/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitClass("a/Class", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitMethod("a/Class", "someMethod", "()La/Class;", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitField("g/Class$Inner", "someField", "I", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		widener.visitField("g/Class$Inner", "someField", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		widener.visitMethod("x/Class", "<init>", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class", "newa/NewClass");
+		mappings.put("a/Class.someMethod()La/Class;", "otherMethod");
+		mappings.put("g/Class$Inner", "newg/NewClass$Inner");
+		mappings.put("g/Class$Inner.someField", "otherField");
+		mappings.put("x/Class", "newx/NewClass");
+		SimpleRemapper remapper = new SimpleRemapper(mappings);
+
+		AccessWidener remapped = widener.remap(remapper, "intermediary");
+
+		// Must match the result of going through the visitor-based remapper
+		AccessWidener expected = new AccessWidener();
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		accept(widener, new AccessWidenerRemapper(writer, remapper, "named", "intermediary"));
+		new AccessWidenerReader(expected).read(writer.write());
+		assertEquals("intermediary", remapped.getNamespace());
+		assertEquals(expected.classAccess, remapped.classAccess);
+		assertEquals(expected.methodAccess, remapped.methodAccess);
+		assertEquals(expected.fieldAccess, remapped.fieldAccess);
+		assertEquals(expected.getTargets(), remapped.getTargets());
+		assertThat(remapped.hasWidenedMethods("newa/NewClass")).isTrue();
+		assertThat(remapped.hasWidenedMethods("newx/NewClass")).isFalse();
+		// The original is left unchanged
+		assertEquals("named", widener.getNamespace());
+		assertThat(widener.getTargets()).containsOnly("a.Class", "g.Class", "g.Class$Inner", "x.Class");
+	}
+
+	@Test
+	void testAcceptVisitsRulesInOrderWithTransitiveFlags() {
+		new AccessWidenerReader(widener).read(("accessWidener\tv2\tnamed\n"
+				+ "mutable\tfield\tb/Class\tfield\tI\n"
+				+ "transitive-accessible\tfield\tb/Class\tfield\tI\n"
+				+ "extendable\tmethod\tb/Class\tmethod\t()V\n"
+				+ "transitive-extendable\tclass\ta/Class\n"
+				+ "accessible\tclass\ta/Class\n"
+				+ "accessible\tclass\ta/Class\n").getBytes(StandardCharsets.UTF_8));
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+
+		widener.accept(writer);
+
+		assertEquals("accessWidener\tv2\tnamed\n"
+				+ "accessible\tclass\ta/Class\n"
+				+ "transitive-extendable\tclass\ta/Class\n"
+				// Implied by the member rules
+				+ "accessible\tclass\tb/Class\n"
+				+ "extendable\tclass\tb/Class\n"
+				+ "transitive-accessible\tfield\tb/Class\tfield\tI\n"
+				+ "mutable\tfield\tb/Class\tfield\tI\n"
+				+ "extendable\tmethod\tb/Class\tmethod\t()V\n", writer.writeString());
+
+		// Reading the output again gives the same rules, for the declaring mod and for dependents
+		AccessWidener copy = new AccessWidener();
+		new AccessWidenerReader(copy).read(writer.write());
+		assertEquals(widener.classAccess, copy.classAccess);
+		assertEquals(widener.methodAccess, copy.methodAccess);
+		assertEquals(widener.fieldAccess, copy.fieldAccess);
+		assertEquals(widener.transitiveClassAccess, copy.transitiveClassAccess);
+		assertEquals(widener.transitiveFieldAccess, copy.transitiveFieldAccess);
+		assertThat(copy.transitiveMethodAccess).isEmpty();
+	}
+
+	@Test
+	void testRemapKeepsTransitiveFlags() {
+		widener.visitHeader("named");
+		widener.visitMethod("a/Class", "someMethod", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, true);
+		widener.visitMethod("a/Class", "someMethod", "()V", AccessWidenerReader.AccessType.EXTENDABLE, false);
+
+		AccessWidener remapped = widener.remap(new SimpleRemapper("a/Class", "b/Class"), "intermediary");
+
+		assertThat(remapped.transitiveMethodAccess).containsOnly(
+				entry(new EntryTriple("b/Class", "someMethod", "()V"), AccessWidener.MethodAccess.ACCESSIBLE)
+		);
+		assertThat(remapped.methodAccess).containsOnly(
+				entry(new EntryTriple("b/Class", "someMethod", "()V"), AccessWidener.MethodAccess.ACCESSIBLE_EXTENDABLE)
+		);
+	}
+
+	private static void accept(AccessWidener widener, AccessWidenerVisitor visitor) {
+		visitor.visitHeader(widener.getNamespace());
+		visitor.visitClass("a/Class", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		visitor.visitClass("a/Class", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		visitor.visitMethod("a/Class", "someMethod", "()La/Class;", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		visitor.visitField("g/Class$Inner", "someField", "I", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		visitor.visitField("g/Class$Inner", "someField", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		visitor.visitMethod("x/Class", "<init>", "()V", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+	}
+
+	private static ClassNode readClass(byte[] classBytes, int flags) {
+		ClassNode classNode = new ClassNode();
+		new ClassReader(classBytes).accept(classNode, flags);
+		return classNode;
+	}
+
+	private static long countLineNumbers(ClassNode classNode) {
+		return classNode.methods.stream()
+				.flatMap(method -> Arrays.stream(method.instructions.toArray()))
+				.filter(LineNumberNode.class::isInstance)
+				.count();
+	}
 }
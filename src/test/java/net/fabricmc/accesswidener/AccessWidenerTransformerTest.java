@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccessWidenerTransformerTest {
+	AccessWidener widener = new AccessWidener();
+	AccessWidenerTransformer transformer = new AccessWidenerTransformer(widener);
+
+	@Test
+	void testTransformsTargets() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+
+		byte[] transformed = transformer.transform(null, "test/PackagePrivateClass", null, null, classBytes);
+
+		assertArrayEquals(widener.transform(classBytes), transformed);
+	}
+
+	@Test
+	void testIgnoresOtherClasses() throws Exception {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+
+		assertNull(transformer.transform(null, "test/FinalClass", null, null, TestClasses.read("test/FinalClass")));
+		assertNull(transformer.transform(null, null, null, null, TestClasses.read("test/FinalClass")));
+	}
+
+	@Test
+	void testReturnsNullForUnchangedTargets() throws Exception {
+		widener.visitField("test/PackagePrivateClass", "missing", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+		byte[] classBytes = TestClasses.read("test/PackagePrivateClass");
+
+		assertNull(transformer.transform(null, "test/PackagePrivateClass", null, null, classBytes));
+	}
+
+	@Test
+	void testPassesErrorsToHandler() {
+		widener.visitClass("test/PackagePrivateClass", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		List<String> failedClasses = new ArrayList<>();
+		AccessWidenerTransformer handlingTransformer = new AccessWidenerTransformer(widener, (className, e) -> failedClasses.add(className));
+		byte[] invalidClass = new byte[] {1, 2, 3};
+
+		assertNull(handlingTransformer.transform(null, "test/PackagePrivateClass", null, null, invalidClass));
+		assertThat(failedClasses).containsExactly("test/PackagePrivateClass");
+		assertThrows(RuntimeException.class, () -> transformer.transform(null, "test/PackagePrivateClass", null, null, invalidClass));
+	}
+
+	@Test
+	void testReadsAgentArguments(@TempDir Path tempDir) throws Exception {
+		Path first = tempDir.resolve("first.accesswidener");
+		Path second = tempDir.resolve("second.accesswidener");
+		Files.write(first, "accessWidener v2 named\naccessible class a/B\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(second, "accessWidener v2 named\nextendable class a/C\n".getBytes(StandardCharsets.UTF_8));
+
+		AccessWidener accessWidener = AccessWidenerAgent.readAccessWideners("namespace=named," + first + "," + second);
+
+		assertThat(accessWidener.getTargets()).containsExactly("a.B", "a.C");
+	}
+}
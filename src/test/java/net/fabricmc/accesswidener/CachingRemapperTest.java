@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+class CachingRemapperTest {
+	@Test
+	void testCachesLookups() {
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class", "newa/NewClass");
+		mappings.put("a/Class.someMethod()La/Class;", "otherMethod");
+		mappings.put("a/Class.someField", "otherField");
+		CountingRemapper counting = new CountingRemapper(new SimpleRemapper(mappings));
+		CachingRemapper remapper = new CachingRemapper(counting);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(remapper.map("a/Class")).isEqualTo("newa/NewClass");
+			assertThat(remapper.mapDesc("La/Class;")).isEqualTo("Lnewa/NewClass;");
+			assertThat(remapper.mapMethodName("a/Class", "someMethod", "()La/Class;")).isEqualTo("otherMethod");
+			assertThat(remapper.mapFieldName("a/Class", "someField", "I")).isEqualTo("otherField");
+		}
+
+		assertThat(counting.calls).isEqualTo(4);
+		assertThat(remapper.getMisses()).isEqualTo(4);
+		assertThat(remapper.getHits()).isEqualTo(8);
+		assertThat(remapper.getHitRate()).isEqualTo(8 / 12.0);
+	}
+
+	@Test
+	void testDistinguishesMembersByDescriptor() {
+		Map<String, String> mappings = new HashMap<>();
+		mappings.put("a/Class.m()V", "first");
+		mappings.put("a/Class.m(I)V", "second");
+		CachingRemapper remapper = new CachingRemapper(new SimpleRemapper(mappings));
+
+		assertThat(remapper.mapMethodName("a/Class", "m", "()V")).isEqualTo("first");
+		assertThat(remapper.mapMethodName("a/Class", "m", "(I)V")).isEqualTo("second");
+		assertThat(remapper.mapMethodName("a/Class", "m", "()V")).isEqualTo("first");
+	}
+
+	@Test
+	void testAccessWidenerRemapperReusesCachingRemapper() {
+		CachingRemapper remapper = new CachingRemapper(new SimpleRemapper(new HashMap<>()));
+		AccessWidenerRemapper awRemapper = new AccessWidenerRemapper(new AccessWidenerWriter(), remapper, "a", "b");
+
+		assertThat(awRemapper.getRemapper()).isSameAs(remapper);
+	}
+
+	private static final class CountingRemapper extends Remapper {
+		private final Remapper delegate;
+		int calls;
+
+		CountingRemapper(Remapper delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public String map(String internalName) {
+			calls++;
+			return delegate.map(internalName);
+		}
+
+		@Override
+		public String mapDesc(String descriptor) {
+			calls++;
+			return delegate.mapDesc(descriptor);
+		}
+
+		@Override
+		public String mapMethodName(String owner, String name, String descriptor) {
+			calls++;
+			return delegate.mapMethodName(owner, name, descriptor);
+		}
+
+		@Override
+		public String mapFieldName(String owner, String name, String descriptor) {
+			calls++;
+			return delegate.mapFieldName(owner, name, descriptor);
+		}
+	}
+}
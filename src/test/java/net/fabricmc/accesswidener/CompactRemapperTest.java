@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class CompactRemapperTest {
+	CompactRemapper remapper = CompactRemapper.builder()
+			.addClass("a/Class", "newa/NewClass")
+			.addClass("g/Class", "newg/NewClass")
+			.addClass("x/Class", "newx/NewClass")
+			.addMethod("a/Class", "someMethod", "()I", "otherMethod")
+			.addMethod("a/Class", "someMethod", "(La/Class;)I", "overloadedMethod")
+			.addField("g/Class", "someField", "otherField")
+			.build();
+
+	@Test
+	void testMapsClasses() {
+		assertEquals("newa/NewClass", remapper.map("a/Class"));
+		assertEquals("b/Unmapped", remapper.map("b/Unmapped"));
+		assertEquals("(Lnewa/NewClass;[Lnewg/NewClass;)Lb/Unmapped;", remapper.mapMethodDesc("(La/Class;[Lg/Class;)Lb/Unmapped;"));
+		assertEquals("Lnewx/NewClass;", remapper.mapDesc("Lx/Class;"));
+		assertEquals(3, remapper.getClassCount());
+	}
+
+	@Test
+	void testMapsMembers() {
+		assertEquals("otherMethod", remapper.mapMethodName("a/Class", "someMethod", "()I"));
+		assertEquals("overloadedMethod", remapper.mapMethodName("a/Class", "someMethod", "(La/Class;)I"));
+		assertEquals("someMethod", remapper.mapMethodName("a/Class", "someMethod", "()V"));
+		assertEquals("someMethod", remapper.mapMethodName("g/Class", "someMethod", "()I"));
+		assertEquals("otherField", remapper.mapFieldName("g/Class", "someField", "I"));
+		assertEquals("otherField", remapper.mapFieldName("g/Class", "someField", null));
+		assertEquals("someField", remapper.mapFieldName("a/Class", "someField", "I"));
+		assertEquals(2, remapper.getMethodCount());
+		assertEquals(1, remapper.getFieldCount());
+	}
+
+	@Test
+	void testBinaryCacheRoundTrip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		remapper.write(new DataOutputStream(bytes));
+
+		CompactRemapper read = CompactRemapper.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals("newg/NewClass", read.map("g/Class"));
+		assertEquals("overloadedMethod", read.mapMethodName("a/Class", "someMethod", "(La/Class;)I"));
+		assertEquals("otherField", read.mapFieldName("g/Class", "someField", "I"));
+	}
+
+	@Test
+	void testRejectsInvalidCache() {
+		byte[] bytes = {0, 0, 0, 1, 0, 0, 0, 1};
+		IOException e = assertThrows(IOException.class, () -> CompactRemapper.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+		assertThat(e).hasMessageContaining("Not a compact remapper cache");
+	}
+
+	@Test
+	void testRemapsAccessWidener() {
+		AccessWidenerWriter writer = new AccessWidenerWriter();
+		AccessWidenerRemapper awRemapper = new AccessWidenerRemapper(writer, remapper, "named", "intermediary");
+		awRemapper.visitHeader("named");
+		awRemapper.visitMethod("a/Class", "someMethod", "(La/Class;)I", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		awRemapper.visitField("g/Class", "someField", "Lx/Class;", AccessWidenerReader.AccessType.MUTABLE, false);
+
+		assertEquals("accessWidener\tv2\tintermediary\n"
+				+ "accessible\tmethod\tnewa/NewClass\toverloadedMethod\t(Lnewa/NewClass;)I\n"
+				+ "mutable\tfield\tnewg/NewClass\totherField\tLnewx/NewClass;\n", writer.writeString());
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class CountingAccessWidenerMetricsTest {
+	CountingAccessWidenerMetrics metrics = new CountingAccessWidenerMetrics();
+
+	@Test
+	void testReaderMetrics() {
+		byte[] content = ("accessWidener v2 named\n"
+				+ "# Comment\n"
+				+ "accessible class a/B\n"
+				+ "accessible method a/B m ()V\n"
+				+ "extendable method a/B n ()V\n"
+				+ "\n"
+				+ "mutable field a/B f I\n").getBytes(StandardCharsets.UTF_8);
+
+		AccessWidenerReader reader = new AccessWidenerReader(new AccessWidener(), metrics);
+		reader.read(content);
+		reader.read(content);
+
+		assertThat(metrics.getFilesRead()).isEqualTo(2);
+		assertThat(metrics.getLines()).isEqualTo(14);
+		assertThat(metrics.getClassEntries()).isEqualTo(2);
+		assertThat(metrics.getMethodEntries()).isEqualTo(4);
+		assertThat(metrics.getFieldEntries()).isEqualTo(2);
+		assertThat(metrics.getBytes()).isEqualTo(content.length * 2L);
+		assertThat(metrics.getParseTimes().getCount()).isEqualTo(2);
+	}
+
+	@Test
+	void testTransformMetrics() throws Exception {
+		AccessWidener widener = new AccessWidener();
+		widener.setMetrics(metrics);
+		widener.visitMethod("test/Generated", "target", "()V", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		widener.visitField("test/FieldTests", "privateFinalIntField", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+
+		widener.transform(generateClassWithPrivateCall());
+		widener.transform(TestClasses.read("test/FieldTests"));
+
+		assertThat(metrics.getClassesTransformed()).isEqualTo(2);
+		assertThat(metrics.getMembersModified()).isEqualTo(2);
+		assertThat(metrics.getCallsRewritten()).isEqualTo(1);
+		assertThat(metrics.getTransformTimes().getCount()).isEqualTo(2);
+	}
+
+	@Test
+	void testMetricsSetDuringTransformationAreUsedFromTheNextClass() {
+		AccessWidener widener = new AccessWidener();
+		widener.visitClass("a/B", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		ClassVisitor visitor = AccessWidenerClassVisitor.createClassVisitor(Opcodes.ASM9, null, widener);
+
+		visitor.visit(Opcodes.V1_8, 0, "a/B", null, "java/lang/Object", null);
+		widener.setMetrics(metrics);
+		visitor.visitEnd();
+
+		assertThat(metrics.getClassesTransformed()).isEqualTo(0);
+	}
+
+	@Test
+	void testLatencyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (int i = 0; i < 90; i++) {
+			histogram.record(100);
+		}
+
+		for (int i = 0; i < 10; i++) {
+			histogram.record(10_000);
+		}
+
+		assertThat(histogram.getCount()).isEqualTo(100);
+		assertThat(histogram.getTotalNanos()).isEqualTo(109_000);
+		assertThat(histogram.getMaxNanos()).isEqualTo(10_000);
+		assertThat(histogram.getPercentileNanos(50)).isEqualTo(128);
+		assertThat(histogram.getPercentileNanos(90)).isEqualTo(128);
+		assertThat(histogram.getPercentileNanos(99)).isEqualTo(16384);
+	}
+
+	/**
+	 * Newer compilers use INVOKEVIRTUAL for private methods, so the INVOKESPECIAL call has to be generated.
+	 */
+	private static byte[] generateClassWithPrivateCall() {
+		ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(Opcodes.V1_8, Opcodes.ACC_SUPER, "test/Generated", null, "java/lang/Object", null);
+
+		MethodVisitor target = classWriter.visitMethod(Opcodes.ACC_PRIVATE, "target", "()V", null, null);
+		target.visitCode();
+		target.visitInsn(Opcodes.RETURN);
+		target.visitMaxs(0, 0);
+		target.visitEnd();
+
+		MethodVisitor caller = classWriter.visitMethod(0, "caller", "()V", null, null);
+		caller.visitCode();
+		caller.visitVarInsn(Opcodes.ALOAD, 0);
+		caller.visitMethodInsn(Opcodes.INVOKESPECIAL, "test/Generated", "target", "()V", false);
+		caller.visitInsn(Opcodes.RETURN);
+		caller.visitMaxs(0, 0);
+		caller.visitEnd();
+
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+}
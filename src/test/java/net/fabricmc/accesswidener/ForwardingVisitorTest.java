@@ -18,9 +18,18 @@ package net.fabricmc.accesswidener;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 class ForwardingVisitorTest {
+	private static final byte[] CONTENT = ("accessWidener\tv2\tnamed\n"
+			+ "accessible\tclass\ta/Class\n"
+			+ "transitive-accessible\tmethod\ta/Class\tmethod\t()V\n"
+			+ "extendable\tclass\tb/Class\n").getBytes(StandardCharsets.UTF_8);
+
 	AccessWidenerWriter writer1 = new AccessWidenerWriter();
 	AccessWidenerWriter writer2 = new AccessWidenerWriter();
 	ForwardingVisitor visitor = new ForwardingVisitor(writer1, writer2);
@@ -58,4 +67,34 @@ class ForwardingVisitorTest {
 				+ "transitive-accessible\tfield\tfield-name\tfield-name\tfield-desc\n", writer1.writeString());
 		assertEquals(writer1.writeString(), writer2.writeString());
 	}
+
+	@Test
+	void visitBatch() {
+		new AccessWidenerReader(visitor).read(CONTENT);
+
+		assertEquals(new String(CONTENT, StandardCharsets.UTF_8), writer1.writeString());
+		assertEquals(writer1.writeString(), writer2.writeString());
+	}
+
+	@Test
+	void visitBatchCallsSubclassOverrides() {
+		List<String> events = new ArrayList<>();
+		AccessWidenerVisitor recorder = new AccessWidenerVisitor() {
+			@Override
+			public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+				events.add("delegate " + name);
+			}
+		};
+		ForwardingVisitor subclass = new ForwardingVisitor(recorder) {
+			@Override
+			public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+				events.add("override " + name);
+				super.visitClass(name, access, transitive);
+			}
+		};
+
+		new AccessWidenerReader(subclass).read(CONTENT);
+
+		assertEquals(List.of("override a/Class", "delegate a/Class", "override b/Class", "delegate b/Class"), events);
+	}
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JfrEventsTest {
+	@Test
+	void testEventsAreRecorded(@TempDir Path tempDir) throws Exception {
+		AccessWidener widener = new AccessWidener();
+		byte[] classBytes = TestClasses.read("test/FieldTests");
+
+		Path recordingFile = tempDir.resolve("recording.jfr");
+
+		try (Recording recording = new Recording()) {
+			recording.enable("net.fabricmc.accesswidener.Read").withoutThreshold();
+			recording.enable("net.fabricmc.accesswidener.Transform").withoutThreshold();
+			recording.start();
+
+			new AccessWidenerReader(widener).read(("accessWidener v2 named\n"
+					+ "accessible field test/FieldTests privateFinalIntField I\n"
+					+ "mutable field test/FieldTests privateFinalIntField I\n").getBytes(StandardCharsets.UTF_8));
+			widener.transform(classBytes);
+
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+		RecordedEvent readEvent = events.stream()
+				.filter(e -> e.getEventType().getName().equals("net.fabricmc.accesswidener.Read"))
+				.findFirst().orElseThrow();
+		RecordedEvent transformEvent = events.stream()
+				.filter(e -> e.getEventType().getName().equals("net.fabricmc.accesswidener.Transform"))
+				.findFirst().orElseThrow();
+
+		assertThat(readEvent.getString("namespace")).isEqualTo("named");
+		assertThat(readEvent.getInt("entries")).isEqualTo(2);
+		assertThat(transformEvent.getString("className")).isEqualTo("test/FieldTests");
+		// The class and the field
+		assertThat(transformEvent.getInt("rulesApplied")).isEqualTo(2);
+	}
+}
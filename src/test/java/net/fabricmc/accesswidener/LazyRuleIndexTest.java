@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class LazyRuleIndexTest {
+	private static final String CONTENT = "accessWidener\tv2\tnamed\n"
+			+ "# Comment\n"
+			+ "accessible\tmethod\ttest/MethodTests\tprivateMethod\t()V\n"
+			+ "\n"
+			+ "transitive-accessible\tclass\ta/b/C$Inner # Trailing comment\r\n"
+			+ "mutable\tfield\ta/b/C$Inner\tfield\tI\n"
+			+ "extendable\tclass\tx/Y";
+
+	@Test
+	void testTargetsAreIndexedWithoutParsing() {
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), "named");
+
+		assertEquals("named", lazy.getNamespace());
+		assertThat(lazy.getTargets()).containsOnly("test.MethodTests", "a.b.C", "a.b.C$Inner", "x.Y");
+		assertEquals(0, lazy.lazyRules.getParsedCount());
+	}
+
+	@Test
+	void testRulesAreParsedOncePerOwner() {
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), null);
+		LazyRuleIndex index = lazy.lazyRules;
+
+		assertEquals(AccessWidener.ClassAccess.ACCESSIBLE, lazy.getClassAccess("a/b/C$Inner"));
+		assertEquals(AccessWidener.FieldAccess.MUTABLE, lazy.getFieldAccess(new EntryTriple("a/b/C$Inner", "field", "I")));
+		assertEquals(1, index.getParsedCount());
+		assertSame(index.getRules("a/b/C$Inner"), index.getRules("a/b/C$Inner"));
+
+		// Owners without rules aren't cached
+		assertEquals(AccessWidener.ClassAccess.DEFAULT, lazy.getClassAccess("a/b/C"));
+		assertEquals(1, index.getParsedCount());
+	}
+
+	@Test
+	void testLazyRulesMatchEagerRules() {
+		AccessWidener eager = new AccessWidener();
+		new AccessWidenerReader(eager).read(bytes(CONTENT));
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), null);
+
+		AccessWidenerWriter eagerWriter = new AccessWidenerWriter();
+		eager.accept(eagerWriter);
+		AccessWidenerWriter lazyWriter = new AccessWidenerWriter();
+		lazy.accept(lazyWriter);
+
+		assertEquals(eagerWriter.writeString(), lazyWriter.writeString());
+	}
+
+	@Test
+	void testTransform() throws IOException {
+		AccessWidener eager = new AccessWidener();
+		new AccessWidenerReader(eager).read(bytes(CONTENT));
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), null);
+		byte[] classBytes = TestClasses.read("test/MethodTests");
+
+		assertArrayEquals(eager.transform(classBytes), lazy.transform(classBytes));
+		assertEquals(1, lazy.lazyRules.getParsedCount());
+	}
+
+	@Test
+	void testErrorsAreReportedOnFirstUse() {
+		AccessWidener lazy = AccessWidener.readLazily(bytes("accessWidener\tv2\tnamed\n"
+				+ "accessible\tclass\tc/D\n"
+				+ "\n"
+				+ "accessible\tclass\ta/B\n"
+				+ "accessible\tmethod\ta/B\tmissingDescriptor\n"), null);
+
+		assertThat(lazy.getTargets()).containsOnly("a.B", "c.D");
+		AccessWidenerFormatException e = assertThrows(AccessWidenerFormatException.class, () -> lazy.getClassAccess("a/B"));
+		// The line in the original file, not in the lines of the owner
+		assertEquals(5, e.getLineNumber());
+	}
+
+	@Test
+	void testContentIsCopied() {
+		byte[] content = bytes(CONTENT);
+		AccessWidener lazy = AccessWidener.readLazily(content, null);
+		Arrays.fill(content, (byte) ' ');
+
+		assertEquals(AccessWidener.ClassAccess.EXTENDABLE, lazy.getClassAccess("x/Y"));
+	}
+
+	@Test
+	void testNamespaceIsChecked() {
+		assertThrows(AccessWidenerFormatException.class, () -> AccessWidener.readLazily(bytes(CONTENT), "intermediary"));
+	}
+
+	@Test
+	void testUnindexableFilesAreReadEagerly() {
+		// Java type names are only translated by the reader
+		AccessWidener accessWidener = AccessWidener.readLazily(bytes("accessWidener\tv2\tnamed\n"
+				+ "accessible\tclass\tjava.lang.String\n"), null);
+
+		assertNull(accessWidener.lazyRules);
+		assertThat(accessWidener.classAccess).isNotEmpty();
+		assertNull(LazyRuleIndex.create(bytes("accessWidener v1 named\n  accessible class a/B # Comment\n"), 1));
+		assertNull(LazyRuleIndex.create(bytes("accessWidener v1 named\naccessible class a/B\rextendable class a/B\n"), 1));
+		assertNotNull(LazyRuleIndex.create(bytes("accessWidener v1 named\naccessible  class\u000ba/B\n"), 1));
+	}
+
+	@Test
+	void testVisitingRulesIsRejected() {
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), null);
+
+		assertThrows(IllegalStateException.class, () -> lazy.visitClass("a/B", AccessWidenerReader.AccessType.ACCESSIBLE, false));
+	}
+
+	@Test
+	void testTrackRuleUsage() throws IOException {
+		AccessWidener lazy = AccessWidener.readLazily(bytes(CONTENT), null);
+		RuleUsageTracker tracker = lazy.trackRuleUsage();
+
+		assertEquals(4, tracker.getEntryCount());
+		lazy.transform(TestClasses.read("test/MethodTests"));
+
+		assertThat(tracker.getUnusedEntries()).containsExactly(
+				"transitive-accessible class a/b/C$Inner",
+				"mutable field a/b/C$Inner field I",
+				"extendable class x/Y"
+		);
+	}
+
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.accesswidener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+class RuleUsageTrackerTest {
+	AccessWidener widener = new AccessWidener();
+
+	@Test
+	void testReportsEntriesThatNeverMatched() throws Exception {
+		RuleUsageTracker tracker = widener.trackRuleUsage();
+		new AccessWidenerReader(widener).read(("accessWidener\tv2\tnamed\n"
+				+ "accessible\tfield\ttest/FieldTests\tprivateFinalIntField\tI\n"
+				+ "mutable\tfield\ttest/FieldTests\tmissingField\tI\n"
+				+ "transitive-accessible\tclass\ttest/MethodTests\n"
+				+ "accessible\tmethod\ttest/MethodTests\tprivateMethod\t()V\n"
+				+ "extendable\tmethod\ttest/MethodTests\tprivateMethod\t()V\n").getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(5, tracker.getEntryCount());
+		widener.transform(TestClasses.read("test/FieldTests"));
+
+		// The method's class was never transformed. The class rule implied by the field entry isn't an entry itself.
+		assertThat(tracker.getUnusedEntries()).containsExactly(
+				"mutable field test/FieldTests missingField I",
+				"transitive-accessible class test/MethodTests",
+				"accessible method test/MethodTests privateMethod ()V",
+				"extendable method test/MethodTests privateMethod ()V"
+		);
+	}
+
+	@Test
+	void testEntriesVisitedBeforeTrackingStillApply() throws Exception {
+		widener.visitClass("test/FinalClass", AccessWidenerReader.AccessType.EXTENDABLE, false);
+		RuleUsageTracker tracker = widener.trackRuleUsage();
+		widener.visitField("test/FinalClass", "missingField", "I", AccessWidenerReader.AccessType.MUTABLE, false);
+
+		byte[] transformed = widener.transform(TestClasses.read("test/FinalClass"));
+
+		assertEquals(0, new ClassReader(transformed).getAccess() & Opcodes.ACC_FINAL);
+		assertEquals(1, tracker.getEntryCount());
+		assertThat(tracker.getUnusedEntries()).containsExactly("mutable field test/FinalClass missingField I");
+	}
+
+	@Test
+	void testTracksManyEntries() {
+		RuleUsageTracker tracker = widener.trackRuleUsage();
+
+		for (int i = 0; i < 200; i++) {
+			widener.visitClass("a/C" + i, AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		}
+
+		for (int i = 0; i < 200; i += 2) {
+			assertEquals(AccessWidener.ClassAccess.ACCESSIBLE, tracker.getClassAccess("a/C" + i));
+		}
+
+		assertThat(tracker.getUnusedEntries()).hasSize(100);
+		assertThat(tracker.getUnusedEntries()).doesNotContain("accessible class a/C64");
+		assertThat(tracker.getUnusedEntries()).contains("accessible class a/C65");
+	}
+}